@@ -0,0 +1,86 @@
+package com.monkcommerce.coupons.benchmark;
+
+import com.monkcommerce.coupons.catalog.CouponCatalog;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.repository.CouponRedemptionRepository;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import com.monkcommerce.coupons.service.ApplicableCouponsCache;
+import com.monkcommerce.coupons.service.CouponChangeLog;
+import com.monkcommerce.coupons.service.CouponEvaluator;
+import com.monkcommerce.coupons.service.CouponProductIndex;
+import com.monkcommerce.coupons.service.CouponService;
+import com.monkcommerce.coupons.service.RedemptionTracker;
+import com.monkcommerce.coupons.strategy.BxGyStrategy;
+import com.monkcommerce.coupons.strategy.CartWiseStrategy;
+import com.monkcommerce.coupons.strategy.ProductWiseStrategy;
+import com.monkcommerce.coupons.strategy.StrategyRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link CouponService#getApplicableCoupons(Cart)} against a warm catalog.
+ * The repository is a stub, so this measures candidate selection and evaluation only;
+ * catalog load cost is paid once in setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class ApplicableCouponsBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int couponCount;
+
+    @Param({"1", "20", "500"})
+    public int cartSize;
+
+    @Param({"0.001", "0.01", "0.1"})
+    public double matchRatio;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    // Run with -p resultCache=true to measure the result-cache hit path (the same cart every call)
+    @Param({"false"})
+    public boolean resultCache;
+
+    private CouponService service;
+    private CouponEvaluator evaluator;
+    private Cart cart;
+
+    @Setup
+    public void setUp() {
+        CouponRepository repository = Mockito.mock(CouponRepository.class);
+        Mockito.when(repository.findActive(Mockito.any())).thenReturn(BenchmarkData.catalog(couponCount, cartSize, matchRatio));
+
+        CouponProperties properties = new CouponProperties();
+        properties.getEvaluation().setParallelEnabled(parallel);
+        properties.getResultCache().setEnabled(resultCache);
+        StrategyRegistry strategies = new StrategyRegistry(List.of(new CartWiseStrategy(), new ProductWiseStrategy(), new BxGyStrategy()), properties);
+        CouponMetrics metrics = new CouponMetrics(new SimpleMeterRegistry(), properties);
+        CouponCatalog catalog = new CouponCatalog(repository, strategies, properties, metrics);
+        evaluator = new CouponEvaluator(properties, metrics);
+        RedemptionTracker tracker = new RedemptionTracker(repository, Mockito.mock(CouponRedemptionRepository.class), properties);
+        service = new CouponService(repository, catalog, evaluator, properties, metrics, tracker,
+                Mockito.mock(CouponProductIndex.class), strategies, new ApplicableCouponsCache(properties, metrics),
+                Mockito.mock(CouponChangeLog.class));
+        cart = BenchmarkData.cart(cartSize);
+
+        // Load and compile the catalog outside the measurement
+        catalog.snapshot();
+    }
+
+    @Benchmark
+    public Map<String, Object> getApplicableCoupons() {
+        return service.getApplicableCoupons(cart);
+    }
+}
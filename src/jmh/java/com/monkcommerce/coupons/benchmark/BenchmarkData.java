@@ -0,0 +1,96 @@
+package com.monkcommerce.coupons.benchmark;
+
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartItem;
+import com.monkcommerce.coupons.model.Coupon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic carts and catalogs shared by the benchmarks.
+ * Cart products are ids 1..cartSize; coupons that should not match use ids far above that range.
+ */
+final class BenchmarkData {
+
+    private static final long NON_MATCHING_BASE = 10_000_000L;
+
+    private BenchmarkData() {
+    }
+
+    static Cart cart(int cartSize) {
+        Random random = new Random(42);
+        List<CartItem> items = new ArrayList<>(cartSize);
+        double total = 0;
+        for (int i = 1; i <= cartSize; i++) {
+            int quantity = 1 + random.nextInt(6);
+            double price = 5 + random.nextInt(200);
+            items.add(new CartItem((long) i, quantity, price, 0.0));
+            total += quantity * price;
+        }
+        Cart cart = new Cart();
+        cart.setItems(items);
+        cart.setTotalPrice(total);
+        return cart;
+    }
+
+    static Map<String, Object> cartWise(double threshold, double discount) {
+        Map<String, Object> details = new HashMap<>();
+        details.put("threshold", threshold);
+        details.put("discount", discount);
+        return details;
+    }
+
+    static Map<String, Object> productWise(long productId, double discount) {
+        Map<String, Object> details = new HashMap<>();
+        details.put("product_id", productId);
+        details.put("discount", discount);
+        return details;
+    }
+
+    static Map<String, Object> bxgy(long[] buyIds, int buyQty, long[] getIds, int getQty, int limit) {
+        List<Map<String, Object>> buy = new ArrayList<>();
+        for (long id : buyIds) buy.add(Map.of("product_id", id, "quantity", buyQty));
+        List<Map<String, Object>> get = new ArrayList<>();
+        for (long id : getIds) get.add(Map.of("product_id", id, "quantity", getQty));
+        Map<String, Object> details = new HashMap<>();
+        details.put("buy_products", buy);
+        details.put("get_products", get);
+        details.put("repetition_limit", limit);
+        return details;
+    }
+
+    /**
+     * A catalog of roughly 80% product-wise, 15% bxgy and 5% cart-wise coupons where about
+     * {@code matchRatio} of the coupons reference products in a cart of {@code cartSize} items.
+     */
+    static List<Coupon> catalog(int couponCount, int cartSize, double matchRatio) {
+        Random random = new Random(7);
+        List<Coupon> coupons = new ArrayList<>(couponCount);
+        for (int i = 0; i < couponCount; i++) {
+            boolean matching = random.nextDouble() < matchRatio;
+            long productId = matching ? 1 + random.nextInt(cartSize) : NON_MATCHING_BASE + random.nextInt(1_000_000);
+            int kind = random.nextInt(100);
+
+            Coupon coupon = new Coupon();
+            coupon.setId((long) i + 1);
+            if (kind < 80) {
+                coupon.setType("product-wise");
+                coupon.setDetails(productWise(productId, 5 + random.nextInt(30)));
+            } else if (kind < 95) {
+                long getId = matching ? 1 + random.nextInt(cartSize) : productId + 1;
+                coupon.setType("bxgy");
+                coupon.setDetails(bxgy(new long[]{productId}, 1 + random.nextInt(3), new long[]{getId}, 1, 3));
+            } else {
+                coupon.setType("cart-wise");
+                // Matching cart-wise coupons have a low threshold, the rest are out of reach
+                coupon.setDetails(cartWise(matching ? 10 : 1e12, 5 + random.nextInt(20)));
+            }
+            coupons.add(coupon);
+        }
+        return coupons;
+    }
+}
@@ -0,0 +1,65 @@
+package com.monkcommerce.coupons.benchmark;
+
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.rule.BxGyRule;
+import com.monkcommerce.coupons.strategy.BxGyStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BxGy evaluation against campaigns with large buy/get lists. Every other buy and get product of the
+ * rule is in the cart (as far as the cart reaches), so both the buy count and the reward walk find work to do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BxGyBenchmark {
+
+    @Param({"20", "500"})
+    public int cartSize;
+
+    // Products listed in each of the buy and get lists
+    @Param({"10", "5000"})
+    public int ruleSize;
+
+    private final BxGyStrategy bxgy = new BxGyStrategy();
+
+    private Cart cart;
+    private CartView view;
+    private BxGyRule rule;
+
+    @Setup
+    public void setUp() {
+        cart = BenchmarkData.cart(cartSize);
+        view = CartView.of(cart);
+        // Cart products are 1..cartSize; every other rule product, and any beyond the cart, fall outside it
+        long[] buyIds = new long[ruleSize];
+        long[] getIds = new long[ruleSize];
+        for (int i = 0; i < ruleSize; i++) {
+            boolean inCart = i % 2 == 0 && i / 2 < cartSize;
+            buyIds[i] = inCart ? 1 + i / 2 : 1_000_000 + i;
+            getIds[i] = inCart ? cartSize - i / 2 : 2_000_000 + i;
+        }
+        rule = bxgy.compile(BenchmarkData.bxgy(buyIds, 2, getIds, 1, 5));
+    }
+
+    @Benchmark
+    public boolean isApplicable() {
+        return bxgy.isApplicable(view, rule);
+    }
+
+    @Benchmark
+    public long computeDiscount() {
+        return bxgy.computeDiscount(view, rule);
+    }
+
+    @Benchmark
+    public Cart applyDiscount() {
+        return bxgy.applyDiscount(cart.copy(), rule);
+    }
+}
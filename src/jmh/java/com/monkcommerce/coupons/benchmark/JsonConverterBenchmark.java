@@ -0,0 +1,57 @@
+package com.monkcommerce.coupons.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.utils.JsonConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a catalog's {@code details} column back into maps, as on every catalog reload.
+ * {@code perInstanceMapper} is the previous converter (own ObjectMapper, raw {@code Map.class});
+ * {@code converter} is the shared reader plus parse cache, warm after the first iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonConverterBenchmark {
+
+    @Param({"1000", "5000"})
+    public int couponCount;
+
+    private String[] columns;
+    private final JsonConverter converter = new JsonConverter();
+
+    @Setup
+    public void setUp() {
+        List<Coupon> coupons = BenchmarkData.catalog(couponCount, 20, 0.5);
+        columns = new String[coupons.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = converter.convertToDatabaseColumn(coupons.get(i).getDetails());
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void perInstanceMapper(Blackhole bh) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        for (String column : columns) {
+            bh.consume(mapper.readValue(column, Map.class));
+        }
+    }
+
+    @Benchmark
+    public void converter(Blackhole bh) {
+        for (String column : columns) {
+            bh.consume(converter.convertToEntityAttribute(column));
+        }
+    }
+}
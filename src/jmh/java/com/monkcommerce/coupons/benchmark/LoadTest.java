@@ -0,0 +1,133 @@
+package com.monkcommerce.coupons.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator: {@code concurrency} clients each send the same POST back to back
+ * for {@code seconds} after {@code warmup} seconds, then throughput and latency percentiles are printed.
+ * Used to compare endpoint variants against a running server, e.g.
+ * <pre>
+ * ./mvnw -Pjmh test-compile exec:exec -Djmh.main=com.monkcommerce.coupons.benchmark.LoadTest \
+ *     -Djmh.args="url=http://localhost:8080/apply-coupon/1 body=@cart.json concurrency=200 seconds=30"
+ * </pre>
+ * {@code body} is inline JSON or {@code @path} to a file.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        URI url = URI.create(options.getOrDefault("url", "http://localhost:8080/applicable-coupons"));
+        String body = options.getOrDefault("body", "{\"items\":[]}");
+        if (body.startsWith("@")) {
+            body = Files.readString(Path.of(body.substring(1)));
+        }
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        long warmupNanos = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5"))).toNanos();
+        long measureNanos = Duration.ofSeconds(Long.parseLong(options.getOrDefault("seconds", "20"))).toNanos();
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        long begin = System.nanoTime();
+        long measureFrom = begin + warmupNanos;
+        long end = measureFrom + measureNanos;
+        Recorder[] recorders = new Recorder[concurrency];
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Recorder recorder = new Recorder();
+            recorders[i] = recorder;
+            Thread worker = new Thread(() -> {
+                try {
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        int status;
+                        try {
+                            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (IOException e) {
+                            status = -1;
+                        }
+                        long finished = System.nanoTime();
+                        if (now >= measureFrom) {
+                            recorder.add(finished - now);
+                            if (status < 200 || status >= 300) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+
+        int total = 0;
+        for (Recorder recorder : recorders) {
+            total += recorder.size;
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (Recorder recorder : recorders) {
+            System.arraycopy(recorder.values, 0, latencies, offset, recorder.size);
+            offset += recorder.size;
+        }
+        Arrays.sort(latencies);
+        double seconds = measureNanos / 1e9;
+        System.out.printf("url=%s concurrency=%d requests=%d errors=%d throughput=%.0f req/s%n",
+                url, concurrency, total, errors.get(), total / seconds);
+        System.out.printf("latency ms: p50=%.2f p90=%.2f p99=%.2f max=%.2f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                total == 0 ? 0.0 : latencies[total - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    // Per-worker latency buffer, so recording never contends
+    private static final class Recorder {
+        long[] values = new long[1 << 14];
+        int size;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+    }
+}
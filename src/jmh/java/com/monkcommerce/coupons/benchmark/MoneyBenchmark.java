@@ -0,0 +1,85 @@
+package com.monkcommerce.coupons.benchmark;
+
+import com.monkcommerce.coupons.utils.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discount arithmetic on {@code long} minor units against the {@code double} formulas the strategies
+ * used before. Each pair does the same work: a percent off every line (product-wise) and a percent off
+ * the cart total (cart-wise), over prices with cents.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+
+    @Param({"1", "20", "500"})
+    public int cartSize;
+
+    private int[] quantities;
+    private double[] prices;
+    private long[] pricesMinor;
+    private double total;
+    private long totalMinor;
+    private final double percent = 15;
+    private final long bps = Money.basisPoints(15);
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        quantities = new int[cartSize];
+        prices = new double[cartSize];
+        pricesMinor = new long[cartSize];
+        for (int i = 0; i < cartSize; i++) {
+            quantities[i] = 1 + random.nextInt(6);
+            prices[i] = (500 + random.nextInt(20_000)) / 100.0;
+            pricesMinor[i] = Money.toMinor(prices[i]);
+            total += quantities[i] * prices[i];
+            totalMinor += quantities[i] * pricesMinor[i];
+        }
+    }
+
+    @Benchmark
+    public double percentPerLineDouble() {
+        double discount = 0;
+        for (int i = 0; i < cartSize; i++) {
+            discount += (prices[i] * quantities[i]) * (percent / 100.0);
+        }
+        return discount;
+    }
+
+    @Benchmark
+    public long percentPerLineMinor() {
+        long discount = 0;
+        for (int i = 0; i < cartSize; i++) {
+            discount += Money.percentOf(Money.times(pricesMinor[i], quantities[i]), bps);
+        }
+        return discount;
+    }
+
+    @Benchmark
+    public double percentOfTotalDouble() {
+        return total * (percent / 100.0);
+    }
+
+    @Benchmark
+    public long percentOfTotalMinor() {
+        return Money.percentOf(totalMinor, bps);
+    }
+
+    // Edge conversion cost paid once per line when a CartView is built
+    @Benchmark
+    public long toMinor() {
+        long sum = 0;
+        for (int i = 0; i < cartSize; i++) {
+            sum += Money.toMinor(prices[i]);
+        }
+        return sum;
+    }
+}
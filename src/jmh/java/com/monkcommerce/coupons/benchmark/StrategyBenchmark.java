@@ -0,0 +1,121 @@
+package com.monkcommerce.coupons.benchmark;
+
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.rule.BxGyRule;
+import com.monkcommerce.coupons.rule.CartWiseRule;
+import com.monkcommerce.coupons.rule.ProductWiseRule;
+import com.monkcommerce.coupons.strategy.BxGyStrategy;
+import com.monkcommerce.coupons.strategy.CartWiseStrategy;
+import com.monkcommerce.coupons.strategy.ProductWiseStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-strategy cost of the map-based API, the typed rule API and the dry-run path.
+ * The matched product sits at the end of the cart, which is the worst case for linear scans.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StrategyBenchmark {
+
+    @Param({"1", "20", "500"})
+    public int cartSize;
+
+    private final CartWiseStrategy cartWise = new CartWiseStrategy();
+    private final ProductWiseStrategy productWise = new ProductWiseStrategy();
+    private final BxGyStrategy bxgy = new BxGyStrategy();
+
+    private Cart cart;
+    private CartView view;
+    private Map<String, Object> cartWiseDetails;
+    private Map<String, Object> productWiseDetails;
+    private Map<String, Object> bxgyDetails;
+    private CartWiseRule cartWiseRule;
+    private ProductWiseRule productWiseRule;
+    private BxGyRule bxgyRule;
+
+    @Setup
+    public void setUp() {
+        cart = BenchmarkData.cart(cartSize);
+        view = CartView.of(cart);
+        long last = cartSize;
+        cartWiseDetails = BenchmarkData.cartWise(10, 10);
+        productWiseDetails = BenchmarkData.productWise(last, 15);
+        bxgyDetails = BenchmarkData.bxgy(new long[]{last, last + 1, last + 2}, 1, new long[]{1, last + 3}, 1, 3);
+        cartWiseRule = cartWise.compile(cartWiseDetails);
+        productWiseRule = productWise.compile(productWiseDetails);
+        bxgyRule = bxgy.compile(bxgyDetails);
+    }
+
+    // Fresh cart for the mutating benchmarks; copying is part of what they measure
+    private Cart freshCart() {
+        return cart.copy();
+    }
+
+    @Benchmark
+    public boolean cartWiseIsApplicableMap() {
+        return cartWise.isApplicable(cart, cartWiseDetails);
+    }
+
+    @Benchmark
+    public boolean cartWiseIsApplicableRule() {
+        return cartWise.isApplicable(view, cartWiseRule);
+    }
+
+    @Benchmark
+    public Cart cartWiseApplyDiscount() {
+        return cartWise.applyDiscount(freshCart(), cartWiseRule);
+    }
+
+    @Benchmark
+    public long cartWiseComputeDiscount() {
+        return cartWise.computeDiscount(view, cartWiseRule);
+    }
+
+    @Benchmark
+    public boolean productWiseIsApplicableMap() {
+        return productWise.isApplicable(cart, productWiseDetails);
+    }
+
+    @Benchmark
+    public boolean productWiseIsApplicableRule() {
+        return productWise.isApplicable(view, productWiseRule);
+    }
+
+    @Benchmark
+    public Cart productWiseApplyDiscount() {
+        return productWise.applyDiscount(freshCart(), productWiseRule);
+    }
+
+    @Benchmark
+    public long productWiseComputeDiscount() {
+        return productWise.computeDiscount(view, productWiseRule);
+    }
+
+    @Benchmark
+    public boolean bxgyIsApplicableMap() {
+        return bxgy.isApplicable(cart, bxgyDetails);
+    }
+
+    @Benchmark
+    public boolean bxgyIsApplicableRule() {
+        return bxgy.isApplicable(view, bxgyRule);
+    }
+
+    @Benchmark
+    public Cart bxgyApplyDiscount() {
+        return bxgy.applyDiscount(freshCart(), bxgyRule);
+    }
+
+    @Benchmark
+    public long bxgyComputeDiscount() {
+        return bxgy.computeDiscount(view, bxgyRule);
+    }
+}
@@ -0,0 +1,535 @@
+package com.monkcommerce.coupons.catalog;
+
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.rule.CouponRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable view of the loaded catalog plus the indexes used to pick candidate coupons.
+ *
+ * Every coupon is addressed by its position in {@link #entries()}:
+ * product-keyed rules are posted under each of their product ids, cart-wide rules are kept
+ * sorted by threshold, and coupons without a compiled rule are always candidates.
+ * Candidate positions are returned in load order so results stay deterministic.
+ *
+ * Snapshots are never modified once built. {@link #with(List, Set)} derives the next version for
+ * added and removed coupons and shares every posting array they do not touch. A removed coupon leaves
+ * an empty position behind, which no index points to; once a quarter of the positions are empty the
+ * next version is compacted by a full rebuild.
+ *
+ * {@link #hidingExpired(long)} serves a snapshot whose coupons have begun to expire while another thread
+ * publishes the version without them: the same indexes, with the expired entries filtered out on read.
+ */
+public final class CatalogSnapshot {
+
+    private final long version;
+    // Null at the positions of removed coupons
+    private final List<CompiledCoupon> entries;
+    private final int live;
+    private final Map<Long, Integer> positionById;
+    private final Map<Long, int[]> byProduct;
+    private final Map<Long, int[]> byDiscountedProduct;
+    private final long[] cartWideThresholds;
+    private final int[] cartWidePositions;
+    private final int[] unindexedPositions;
+    private final long nextExpiry;
+    // Entries expiring at or before this instant are hidden; Long.MIN_VALUE for a published snapshot
+    private final long hiddenUpTo;
+
+    CatalogSnapshot(long version, List<CompiledCoupon> entries) {
+        this.version = version;
+        this.entries = Collections.unmodifiableList(entries);
+        this.live = entries.size();
+        this.hiddenUpTo = Long.MIN_VALUE;
+
+        long soonest = Long.MAX_VALUE;
+        for (CompiledCoupon entry : entries) {
+            soonest = Math.min(soonest, entry.expiresAt());
+        }
+        this.nextExpiry = soonest;
+
+        this.positionById = new HashMap<>(entries.size() * 2);
+        for (int pos = 0; pos < entries.size(); pos++) {
+            positionById.put(entries.get(pos).id(), pos);
+        }
+
+        Map<Long, List<Integer>> postings = new HashMap<>();
+        Map<Long, List<Integer>> discountedPostings = new HashMap<>();
+        List<Integer> cartWide = new ArrayList<>();
+        List<Integer> unindexed = new ArrayList<>();
+        for (int pos = 0; pos < entries.size(); pos++) {
+            CouponRule rule = entries.get(pos).rule();
+            if (rule == null) {
+                unindexed.add(pos);
+            } else if (rule.productIds().length == 0) {
+                cartWide.add(pos);
+            } else {
+                for (long productId : rule.productIds()) {
+                    post(postings, productId, pos);
+                }
+                for (long productId : rule.discountedProductIds()) {
+                    post(discountedPostings, productId, pos);
+                }
+            }
+        }
+
+        this.byProduct = new HashMap<>(postings.size() * 2);
+        postings.forEach((productId, list) -> byProduct.put(productId, toArray(list)));
+        this.byDiscountedProduct = new HashMap<>(discountedPostings.size() * 2);
+        discountedPostings.forEach((productId, list) -> byDiscountedProduct.put(productId, toArray(list)));
+
+        cartWide.sort((a, b) -> Long.compare(entries.get(a).rule().minCartTotal(), entries.get(b).rule().minCartTotal()));
+        this.cartWidePositions = toArray(cartWide);
+        this.cartWideThresholds = new long[cartWidePositions.length];
+        for (int i = 0; i < cartWidePositions.length; i++) {
+            cartWideThresholds[i] = entries.get(cartWidePositions[i]).rule().minCartTotal();
+        }
+        this.unindexedPositions = toArray(unindexed);
+    }
+
+    private CatalogSnapshot(long version, List<CompiledCoupon> entries, Map<Long, Integer> positionById,
+                            Map<Long, int[]> byProduct, Map<Long, int[]> byDiscountedProduct,
+                            long[] cartWideThresholds, int[] cartWidePositions, int[] unindexedPositions,
+                            long nextExpiry, long hiddenUpTo) {
+        this.version = version;
+        this.entries = Collections.unmodifiableList(entries);
+        this.live = positionById.size();
+        this.positionById = positionById;
+        this.byProduct = byProduct;
+        this.byDiscountedProduct = byDiscountedProduct;
+        this.cartWideThresholds = cartWideThresholds;
+        this.cartWidePositions = cartWidePositions;
+        this.unindexedPositions = unindexedPositions;
+        this.nextExpiry = nextExpiry;
+        this.hiddenUpTo = hiddenUpTo;
+    }
+
+    /**
+     * The next version of this snapshot with {@code entry} added, or replacing the entry with the same id.
+     */
+    CatalogSnapshot with(CompiledCoupon entry) {
+        return with(List.of(entry), Set.of());
+    }
+
+    /**
+     * The next version of this snapshot with {@code upserts} added or replacing the entries with the same id,
+     * and the coupons in {@code removedIds} dropped; this snapshot itself if none of it changes anything.
+     * New coupons are appended at the end and removed ones leave their position empty, so only the postings
+     * of their own products are copied. Replacements move positions, so the indexes are then rebuilt.
+     */
+    CatalogSnapshot with(List<CompiledCoupon> upserts, Set<Long> removedIds) {
+        List<CompiledCoupon> added = new ArrayList<>();
+        Map<Long, CompiledCoupon> replaced = new HashMap<>();
+        for (CompiledCoupon entry : upserts) {
+            CompiledCoupon previous = find(entry.id());
+            if (previous == null) {
+                added.add(entry);
+            } else if (!previous.coupon().equals(entry.coupon())) {
+                replaced.put(entry.id(), entry);
+            }
+        }
+        int removes = 0;
+        for (Long id : removedIds) {
+            if (positionById.containsKey(id)) {
+                removes++;
+            }
+        }
+        if (added.isEmpty() && replaced.isEmpty() && removes == 0) {
+            return this;
+        }
+
+        int empty = entries.size() - live + removes;
+        if (!replaced.isEmpty() || empty * 4 > entries.size() + added.size()) {
+            List<CompiledCoupon> next = new ArrayList<>(live - removes + added.size());
+            for (CompiledCoupon entry : entries) {
+                if (entry != null && !removedIds.contains(entry.id())) {
+                    next.add(replaced.getOrDefault(entry.id(), entry));
+                }
+            }
+            next.addAll(added);
+            return new CatalogSnapshot(version + 1, next);
+        }
+
+        List<CompiledCoupon> next = new ArrayList<>(entries.size() + added.size());
+        next.addAll(entries);
+        Map<Long, Integer> nextPositions = new HashMap<>(positionById);
+        // Copied on first use; arrays of products no added or removed coupon touches stay shared
+        Map<Long, int[]> products = null;
+        Map<Long, int[]> discountedProducts = null;
+        long[] thresholds = cartWideThresholds;
+        int[] cartWide = cartWidePositions;
+        int[] unindexed = unindexedPositions;
+        long soonest = nextExpiry;
+
+        if (removes > 0) {
+            for (Long id : removedIds) {
+                Integer pos = nextPositions.remove(id);
+                if (pos == null) {
+                    continue;
+                }
+                CouponRule rule = next.set(pos, null).rule();
+                if (rule == null) {
+                    unindexed = remove(unindexed, Arrays.binarySearch(unindexed, pos));
+                } else if (rule.productIds().length == 0) {
+                    int at = indexOf(cartWide, pos);
+                    thresholds = remove(thresholds, at);
+                    cartWide = remove(cartWide, at);
+                } else {
+                    products = drop(products == null ? new HashMap<>(byProduct) : products, rule.productIds(), pos);
+                    if (rule.discountedProductIds().length > 0) {
+                        discountedProducts = drop(discountedProducts == null ? new HashMap<>(byDiscountedProduct) : discountedProducts,
+                                rule.discountedProductIds(), pos);
+                    }
+                }
+            }
+            soonest = Long.MAX_VALUE;
+            for (CompiledCoupon entry : next) {
+                if (entry != null) {
+                    soonest = Math.min(soonest, entry.expiresAt());
+                }
+            }
+        }
+
+        for (CompiledCoupon entry : added) {
+            int pos = next.size();
+            next.add(entry);
+            nextPositions.put(entry.id(), pos);
+            soonest = Math.min(soonest, entry.expiresAt());
+            CouponRule rule = entry.rule();
+            if (rule == null) {
+                unindexed = insert(unindexed, unindexed.length, pos);
+            } else if (rule.productIds().length == 0) {
+                // After every threshold not above it, which keeps ties in load order
+                int at = countBelow(thresholds, rule.minCartTotal() + 1);
+                thresholds = insert(thresholds, at, rule.minCartTotal());
+                cartWide = insert(cartWide, at, pos);
+            } else {
+                products = append(products == null ? new HashMap<>(byProduct) : products, rule.productIds(), pos);
+                if (rule.discountedProductIds().length > 0) {
+                    discountedProducts = append(discountedProducts == null ? new HashMap<>(byDiscountedProduct) : discountedProducts,
+                            rule.discountedProductIds(), pos);
+                }
+            }
+        }
+        return new CatalogSnapshot(version + 1, next, nextPositions,
+                products == null ? byProduct : products,
+                discountedProducts == null ? byDiscountedProduct : discountedProducts,
+                thresholds, cartWide, unindexed, soonest, Long.MIN_VALUE);
+    }
+
+    /**
+     * This snapshot, same version, with the entries expiring at or before {@code now} hidden from every read.
+     */
+    CatalogSnapshot hidingExpired(long now) {
+        return new CatalogSnapshot(version, entries, positionById, byProduct, byDiscountedProduct,
+                cartWideThresholds, cartWidePositions, unindexedPositions, nextExpiry, now);
+    }
+
+    /**
+     * Ids of the entries expiring at or before {@code now}.
+     */
+    Set<Long> expiredIds(long now) {
+        Set<Long> expired = new HashSet<>();
+        for (CompiledCoupon entry : entries) {
+            if (entry != null && entry.expiresAt() <= now) {
+                expired.add(entry.id());
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Increases with every snapshot the catalog publishes, whether after a reload, a new coupon or an expiry
+     * eviction, so two reads seeing the same version saw the same coupons. Versions are local to one instance.
+     */
+    public long version() {
+        return version;
+    }
+
+    public List<CompiledCoupon> entries() {
+        if (live == entries.size() && !hiding()) {
+            return entries;
+        }
+        List<CompiledCoupon> visible = new ArrayList<>(live);
+        for (CompiledCoupon entry : entries) {
+            if (entry != null && !hidden(entry)) {
+                visible.add(entry);
+            }
+        }
+        return Collections.unmodifiableList(visible);
+    }
+
+    /**
+     * The entry with this coupon id, or null when the coupon is not active and unexpired in this snapshot.
+     */
+    public CompiledCoupon find(Long id) {
+        Integer pos = positionById.get(id);
+        if (pos == null) {
+            return null;
+        }
+        CompiledCoupon entry = entries.get(pos);
+        return hidden(entry) ? null : entry;
+    }
+
+    // Entries held, counting those a stale snapshot hides
+    public int size() {
+        return live;
+    }
+
+    /**
+     * True for a snapshot served while the version without its expired entries is being published.
+     * Results computed from it must not be cached under its version, which the published one also holds.
+     */
+    public boolean hidesExpired() {
+        return hiding();
+    }
+
+    // Epoch millis at which the first entry expires; the snapshot must not be served from then on
+    public long nextExpiry() {
+        return nextExpiry;
+    }
+
+    /**
+     * Coupons that may apply to the cart: those keyed by a product in the cart, cart-wide coupons
+     * whose threshold is below the cart total, and every coupon without an index key.
+     * Coupons that cannot possibly apply are never returned; the rest still need a strategy check.
+     */
+    public List<CompiledCoupon> candidates(CartView cart) {
+        int[] positions = candidatePositions(cart);
+        List<CompiledCoupon> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            result.add(entries.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * Positions (indexes into {@link #entries()}) of {@link #candidates(CartView)}, ascending.
+     */
+    public int[] candidatePositions(CartView cart) {
+        int cartWideCount = countBelow(cart.totalPrice());
+        int[] positions = new int[16];
+        int n = 0;
+
+        // Distinct products only, so a product on several lines contributes its coupons once
+        CartView.ProductTotals products = cart.productTotals();
+        for (int i = 0; i < products.size(); i++) {
+            int[] posting = byProduct.get(products.productId(i));
+            if (posting == null) {
+                continue;
+            }
+            if (n + posting.length > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(positions.length * 2, n + posting.length));
+            }
+            System.arraycopy(posting, 0, positions, n, posting.length);
+            n += posting.length;
+        }
+
+        int total = n + cartWideCount + unindexedPositions.length;
+        if (total > positions.length) {
+            positions = Arrays.copyOf(positions, total);
+        }
+        System.arraycopy(cartWidePositions, 0, positions, n, cartWideCount);
+        n += cartWideCount;
+        System.arraycopy(unindexedPositions, 0, positions, n, unindexedPositions.length);
+        n += unindexedPositions.length;
+
+        // Restore load order and drop coupons reached through more than one cart item
+        Arrays.sort(positions, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if ((distinct == 0 || positions[i] != positions[distinct - 1]) && !hidden(entries.get(positions[i]))) {
+                positions[distinct++] = positions[i];
+            }
+        }
+        return Arrays.copyOf(positions, distinct);
+    }
+
+    public CompiledCoupon entry(int position) {
+        return entries.get(position);
+    }
+
+    /**
+     * Positions of the product-keyed coupons whose rule requires or discounts this product,
+     * i.e. every indexed coupon a change to this product's line can affect. A coupon that both requires
+     * and discounts the product is visited once.
+     */
+    public void forEachProductPosition(long productId, IntConsumer action) {
+        int[] required = byProduct.get(productId);
+        int[] discounted = byDiscountedProduct.get(productId);
+        if (required == null || discounted == null) {
+            forEach(required, action);
+            forEach(discounted, action);
+            return;
+        }
+        // Both postings are ascending, so merging them skips the positions they share
+        int i = 0;
+        int j = 0;
+        while (i < required.length || j < discounted.length) {
+            int position;
+            if (j == discounted.length || (i < required.length && required[i] < discounted[j])) {
+                position = required[i++];
+            } else if (i == required.length || discounted[j] < required[i]) {
+                position = discounted[j++];
+            } else {
+                position = required[i++];
+                j++;
+            }
+            visit(position, action);
+        }
+    }
+
+    /**
+     * Positions of the cart-wide coupons whose threshold is below the cart total (minor units).
+     */
+    public void forEachCartWidePosition(long totalPrice, IntConsumer action) {
+        int count = countBelow(totalPrice);
+        for (int i = 0; i < count; i++) {
+            visit(cartWidePositions[i], action);
+        }
+    }
+
+    /**
+     * Positions of the coupons without an index key, which must be evaluated against every cart.
+     */
+    public void forEachUnindexedPosition(IntConsumer action) {
+        forEach(unindexedPositions, action);
+    }
+
+    // Number of cart-wide coupons whose threshold is strictly below the cart total
+    private int countBelow(long totalPrice) {
+        return countBelow(cartWideThresholds, totalPrice);
+    }
+
+    private static int countBelow(long[] thresholds, long totalPrice) {
+        int lo = 0;
+        int hi = thresholds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (thresholds[mid] < totalPrice) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static void post(Map<Long, List<Integer>> postings, long productId, int pos) {
+        List<Integer> list = postings.computeIfAbsent(productId, k -> new ArrayList<>());
+        // Same product listed twice in one rule -> post it once
+        if (list.isEmpty() || list.get(list.size() - 1) != pos) {
+            list.add(pos);
+        }
+    }
+
+    // Adds pos under each product of a copied postings map, replacing only the arrays it grows
+    private static Map<Long, int[]> append(Map<Long, int[]> postings, long[] productIds, int pos) {
+        for (long productId : productIds) {
+            int[] posting = postings.get(productId);
+            if (posting == null) {
+                postings.put(productId, new int[]{pos});
+            } else if (posting[posting.length - 1] != pos) {
+                postings.put(productId, insert(posting, posting.length, pos));
+            }
+        }
+        return postings;
+    }
+
+    // Removes pos under each product of a copied postings map, replacing only the arrays it shrinks
+    private static Map<Long, int[]> drop(Map<Long, int[]> postings, long[] productIds, int pos) {
+        for (long productId : productIds) {
+            int[] posting = postings.get(productId);
+            int at = posting == null ? -1 : Arrays.binarySearch(posting, pos);
+            if (at < 0) {
+                continue;
+            }
+            if (posting.length == 1) {
+                postings.remove(productId);
+            } else {
+                postings.put(productId, remove(posting, at));
+            }
+        }
+        return postings;
+    }
+
+    // Cart-wide positions are ordered by threshold, not position
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long[] remove(long[] array, int at) {
+        long[] copy = new long[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, at);
+        System.arraycopy(array, at + 1, copy, at, array.length - at - 1);
+        return copy;
+    }
+
+    private static int[] remove(int[] array, int at) {
+        int[] copy = new int[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, at);
+        System.arraycopy(array, at + 1, copy, at, array.length - at - 1);
+        return copy;
+    }
+
+    private static long[] insert(long[] array, int at, long value) {
+        long[] copy = new long[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(array, at, copy, at + 1, array.length - at);
+        return copy;
+    }
+
+    private static int[] insert(int[] array, int at, int value) {
+        int[] copy = new int[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(array, at, copy, at + 1, array.length - at);
+        return copy;
+    }
+
+    private void forEach(int[] positions, IntConsumer action) {
+        if (positions != null) {
+            for (int position : positions) {
+                visit(position, action);
+            }
+        }
+    }
+
+    private void visit(int position, IntConsumer action) {
+        if (!hidden(entries.get(position))) {
+            action.accept(position);
+        }
+    }
+
+    // Only a stale snapshot past its next expiry has anything to hide
+    private boolean hiding() {
+        return hiddenUpTo >= nextExpiry;
+    }
+
+    private boolean hidden(CompiledCoupon entry) {
+        return hiding() && entry.expiresAt() <= hiddenUpTo;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,74 @@
+package com.monkcommerce.coupons.catalog;
+
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.rule.CouponRule;
+import com.monkcommerce.coupons.strategy.CouponStrategy;
+import com.monkcommerce.coupons.strategy.TypedCouponStrategy;
+import com.monkcommerce.coupons.utils.Money;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+
+/**
+ * A catalog entry: the loaded coupon, the strategy handling its type and its compiled rule.
+ * {@code rule} is {@code null} for strategies without a typed form; those are still
+ * evaluated through the raw details map. {@code expiresAt} is the expiration date as epoch
+ * millis in the system zone, or {@link Long#MAX_VALUE} when the coupon never expires.
+ */
+public record CompiledCoupon(Coupon coupon, CouponStrategy strategy, CouponRule rule, long expiresAt) {
+
+    public CompiledCoupon(Coupon coupon, CouponStrategy strategy, CouponRule rule) {
+        this(coupon, strategy, rule, expiresAt(coupon.getExpirationDate()));
+    }
+
+    private static long expiresAt(LocalDateTime expirationDate) {
+        return expirationDate == null ? Long.MAX_VALUE : expirationDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public Long id() {
+        return coupon.getId();
+    }
+
+    public String type() {
+        return coupon.getType();
+    }
+
+    public Map<String, Object> details() {
+        return coupon.getDetails();
+    }
+
+    public LocalDateTime expirationDate() {
+        return coupon.getExpirationDate();
+    }
+
+    public boolean isApplicable(CartView cart) {
+        return rule == null ? strategy.isApplicable(cart.cart(), details()) : typed().isApplicable(cart, rule);
+    }
+
+    /**
+     * Discount this coupon would give the cart in minor units, without mutating it.
+     * Plain strategies only offer the mutating path, so they run on a throw-away copy.
+     */
+    public long computeDiscount(CartView cart) {
+        if (rule == null) {
+            return Money.toMinor(strategy.applyDiscount(cart.cart().copy(), details()).getTotalDiscount());
+        }
+        return typed().computeDiscount(cart, rule);
+    }
+
+    /**
+     * Applies this coupon to the cart, mutating it; the compiled rule is used when there is one.
+     */
+    public Cart applyDiscount(Cart cart) {
+        return rule == null ? strategy.applyDiscount(cart, details()) : typed().applyDiscount(cart, rule);
+    }
+
+    // Safe: the rule was produced by this very strategy's compile()
+    @SuppressWarnings("unchecked")
+    private TypedCouponStrategy<CouponRule> typed() {
+        return (TypedCouponStrategy<CouponRule>) strategy;
+    }
+}
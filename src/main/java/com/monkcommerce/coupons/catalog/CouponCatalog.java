@@ -0,0 +1,328 @@
+package com.monkcommerce.coupons.catalog;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import com.monkcommerce.coupons.rule.CouponRule;
+import com.monkcommerce.coupons.strategy.CouponStrategy;
+import com.monkcommerce.coupons.strategy.StrategyRegistry;
+import com.monkcommerce.coupons.strategy.TypedCouponStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read-through cache of the active, unexpired coupons, published as immutable versioned snapshots.
+ *
+ * The first read after startup loads every active coupon once and compiles its details through the
+ * matching strategy; all further reads are served from memory without touching the database or the
+ * JSON converter.
+ *
+ * The current {@link CatalogSnapshot} sits behind a single atomic reference and readers never lock.
+ * Writers are serialized among themselves, build the next snapshot off to the side and swap it in:
+ * a created coupon is compiled and appended to the current snapshot ({@link #add(Coupon)}), coupons
+ * changed on other instances are re-read by id ({@link #refresh(Collection)}), and
+ * {@link #invalidate()} reloads everything from storage. Until the swap, readers keep being served
+ * the previous version in full.
+ *
+ * Expired coupons are never loaded, and coupons that expire later are evicted by publishing a snapshot
+ * without them, derived incrementally from the current one. Readers only compare the clock against the
+ * snapshot's next expiry instead of checking every coupon. Past it, one thread at a time does the eviction,
+ * the scheduled sweep or whichever read gets there first; every other read meanwhile is served the current
+ * snapshot with its expired entries hidden.
+ */
+@Component
+public class CouponCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(CouponCatalog.class);
+
+    private final CouponRepository couponRepository;
+    private final CouponProperties.Expiry expirySettings;
+    private final Clock clock;
+    private final CouponMetrics metrics;
+    private final StrategyRegistry strategyRegistry;
+
+    // Null until the first read loads the catalog
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>();
+    // Serializes writers (loads, reloads and additions); readers and expiry evictions only use the reference
+    private final Object writeLock = new Object();
+    // Held by the one thread evicting expired coupons
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    // Evicted ids waiting to be flagged inactive in storage by the sweep
+    private final Queue<Long> pendingDeactivation = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public CouponCatalog(CouponRepository couponRepository, StrategyRegistry strategyRegistry,
+                         CouponProperties properties, CouponMetrics metrics) {
+        this(couponRepository, strategyRegistry, properties, metrics, Clock.systemDefaultZone());
+    }
+
+    public CouponCatalog(CouponRepository couponRepository, StrategyRegistry strategyRegistry,
+                         CouponProperties properties, CouponMetrics metrics, Clock clock) {
+        this.couponRepository = couponRepository;
+        this.strategyRegistry = strategyRegistry;
+        this.expirySettings = properties.getExpiry();
+        this.clock = clock;
+        this.metrics = metrics;
+        metrics.registerCatalogSize(() -> {
+            CatalogSnapshot snapshot = current.get();
+            return snapshot == null ? 0 : snapshot.size();
+        });
+        // A newly registered or replaced strategy changes which coupons compile
+        strategyRegistry.addListener(this::invalidate);
+    }
+
+    /**
+     * True once the first read has loaded the catalog, so reads no longer touch storage.
+     */
+    public boolean isLoaded() {
+        return current.get() != null;
+    }
+
+    /**
+     * Active, unexpired coupons in load order, loading them if the catalog is empty.
+     */
+    public List<CompiledCoupon> entries() {
+        return snapshot().entries();
+    }
+
+    /**
+     * The active, unexpired coupon with this id, or null if the catalog does not hold it.
+     */
+    public CompiledCoupon find(Long id) {
+        return snapshot().find(id);
+    }
+
+    /**
+     * Current snapshot of the active, unexpired coupons and their indexes. Only the very first call
+     * waits, for the initial load; every other call is a volatile read plus a clock check.
+     */
+    public CatalogSnapshot snapshot() {
+        CatalogSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            snapshot = loadInitial();
+        }
+        long now = clock.millis();
+        if (now < snapshot.nextExpiry()) {
+            return snapshot;
+        }
+        evictExpired(now);
+        snapshot = current.get();
+        return now < snapshot.nextExpiry() ? snapshot : snapshot.hidingExpired(now);
+    }
+
+    /**
+     * Publishes a newly stored coupon by appending it to the current snapshot, without reloading.
+     * Inside a transaction this waits for the commit, so readers never see a coupon that was rolled back.
+     */
+    public void add(Coupon coupon) {
+        afterCommit(() -> {
+            CompiledCoupon entry = compile(coupon);
+            if (entry != null && entry.expiresAt() > clock.millis()) {
+                apply(List.of(entry), Set.of());
+            }
+        });
+    }
+
+    /**
+     * Re-reads these coupons from storage and publishes their current state: changed coupons replace
+     * their entries, and coupons that are gone, inactive or expired leave the catalog.
+     * Coupons whose stored state matches the catalog cost nothing beyond the read.
+     */
+    public void refresh(Collection<Long> ids) {
+        if (current.get() == null || ids.isEmpty()) {
+            return;
+        }
+        long now = clock.millis();
+        List<CompiledCoupon> upserts = new ArrayList<>(ids.size());
+        Set<Long> removed = new HashSet<>(ids);
+        for (Coupon coupon : couponRepository.findAllById(ids)) {
+            CompiledCoupon entry = compile(coupon);
+            if (entry != null && entry.expiresAt() > now) {
+                upserts.add(entry);
+                removed.remove(entry.id());
+            }
+        }
+        apply(upserts, removed);
+    }
+
+    /**
+     * Reloads the catalog from storage and swaps the result in. Call after writes {@link #add(Coupon)}
+     * does not cover. Inside a transaction this waits for the commit, so the reload can never miss the write.
+     */
+    public void invalidate() {
+        afterCommit(() -> {
+            synchronized (writeLock) {
+                // Not loaded yet: the first read loads the current state anyway
+                if (current.get() != null) {
+                    publish(load());
+                }
+            }
+        });
+    }
+
+    /**
+     * Evicts coupons whose expiry has passed and, if enabled, flags them inactive in storage in batches.
+     */
+    @Scheduled(fixedDelayString = "${coupons.expiry.sweep-interval-ms:1000}")
+    public void sweepExpired() {
+        CatalogSnapshot snapshot = current.get();
+        long now = clock.millis();
+        if (snapshot != null && now >= snapshot.nextExpiry()) {
+            evictExpired(now);
+        }
+        if (!expirySettings.isDeactivateInStorage()) {
+            pendingDeactivation.clear();
+            return;
+        }
+        List<Long> batch = new ArrayList<>(expirySettings.getDeactivateBatchSize());
+        Long id;
+        while ((id = pendingDeactivation.poll()) != null) {
+            batch.add(id);
+            if (batch.size() == expirySettings.getDeactivateBatchSize()) {
+                deactivate(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            deactivate(batch);
+        }
+    }
+
+    private void deactivate(List<Long> ids) {
+        // Already gone from memory, so this write does not invalidate the catalog
+        int updated = couponRepository.deactivateAll(ids);
+        log.info("Deactivated {} expired coupons in storage", updated);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+        action.run();
+    }
+
+    private void apply(List<CompiledCoupon> upserts, Set<Long> removedIds) {
+        synchronized (writeLock) {
+            CatalogSnapshot snapshot;
+            CatalogSnapshot next;
+            do {
+                snapshot = current.get();
+                // Not loaded yet: the first read will load the coupons from storage
+                if (snapshot == null) {
+                    return;
+                }
+                next = snapshot.with(upserts, removedIds);
+                // Only an expiry eviction can swap in between; retry on top of its snapshot
+            } while (next != snapshot && !current.compareAndSet(snapshot, next));
+        }
+    }
+
+    private CatalogSnapshot loadInitial() {
+        synchronized (writeLock) {
+            CatalogSnapshot snapshot = current.get();
+            if (snapshot == null) {
+                snapshot = new CatalogSnapshot(1, load());
+                current.set(snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    // Must hold the write lock
+    private void publish(List<CompiledCoupon> entries) {
+        CatalogSnapshot snapshot;
+        do {
+            snapshot = current.get();
+        } while (!current.compareAndSet(snapshot, new CatalogSnapshot(snapshot.version() + 1, entries)));
+    }
+
+    // Single-flight: returns at once if another thread is evicting. Not under the write lock, so a read never
+    // waits for a reload; a writer swapping in between makes the eviction retry on top of its snapshot
+    private void evictExpired(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            CatalogSnapshot snapshot;
+            Set<Long> expired;
+            do {
+                snapshot = current.get();
+                if (now < snapshot.nextExpiry()) {
+                    return;
+                }
+                expired = snapshot.expiredIds(now);
+            } while (!current.compareAndSet(snapshot, snapshot.with(List.of(), expired)));
+            pendingDeactivation.addAll(expired);
+            log.debug("Evicted {} expired coupons from the catalog", expired.size());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private List<CompiledCoupon> load() {
+        long start = System.nanoTime();
+        long now = clock.millis();
+        // Inactive and expired rows are filtered by the database; the checks below still guard the rest
+        List<Coupon> coupons = couponRepository.findActive(LocalDateTime.ofInstant(Instant.ofEpochMilli(now), clock.getZone()));
+        List<CompiledCoupon> entries = new ArrayList<>(coupons.size());
+        for (Coupon coupon : coupons) {
+            // Inactive coupons and coupons no strategy can evaluate never apply, so they are not kept in memory
+            CompiledCoupon entry = compile(coupon);
+            if (entry == null || entry.expiresAt() <= now) {
+                continue;
+            }
+            entries.add(entry);
+        }
+        long elapsed = System.nanoTime() - start;
+        metrics.recordCatalogLoad(elapsed);
+        log.info("Loaded coupon catalog: {} active of {} coupons in {} ms",
+                entries.size(), coupons.size(), elapsed / 1_000_000);
+        return entries;
+    }
+
+    // Null for coupons that can never apply: inactive, of an unknown type, or with details the strategy rejects
+    private CompiledCoupon compile(Coupon coupon) {
+        if (!coupon.isActive()) {
+            return null;
+        }
+        CouponStrategy strategy = strategyRegistry.find(coupon.getType());
+        if (strategy == null) {
+            log.debug("Catalog: no strategy for coupon {} of type {}", coupon.getId(), coupon.getType());
+            return null;
+        }
+        CouponRule rule = null;
+        if (strategy instanceof TypedCouponStrategy<?> typed) {
+            rule = typed.compile(coupon.getDetails());
+            if (rule == null) {
+                log.warn("Catalog: coupon {} has invalid {} details, it will never apply", coupon.getId(), coupon.getType());
+                return null;
+            }
+        }
+        return new CompiledCoupon(coupon, strategy, rule);
+    }
+}
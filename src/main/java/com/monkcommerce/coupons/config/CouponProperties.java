@@ -0,0 +1,137 @@
+package com.monkcommerce.coupons.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Tunables for the coupon service, bound from {@code coupons.*} in application.properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "coupons")
+public class CouponProperties {
+
+    private Evaluation evaluation = new Evaluation();
+    private Batch batch = new Batch();
+    private Best best = new Best();
+    private Expiry expiry = new Expiry();
+    private Metrics metrics = new Metrics();
+    private Redemption redemption = new Redemption();
+    private Bulk bulk = new Bulk();
+    private Listing listing = new Listing();
+    private Session session = new Session();
+    private Strategies strategies = new Strategies();
+    private ResultCache resultCache = new ResultCache();
+    private Sync sync = new Sync();
+    private Reactive reactive = new Reactive();
+
+    @Data
+    public static class Evaluation {
+        // Split candidate coupons across a fork-join pool instead of evaluating them on the request thread
+        private boolean parallelEnabled = false;
+        // Below this many candidates the sequential path is always used
+        private int parallelThreshold = 256;
+        // Worker threads for parallel and batch evaluation; 0 means one per available processor
+        private int parallelism = 0;
+    }
+
+    @Data
+    public static class Batch {
+        // Largest number of carts accepted by POST /applicable-coupons/batch
+        private int maxSize = 1000;
+    }
+
+    @Data
+    public static class Best {
+        // Search nodes the stackable best-coupon search may visit before returning its best-so-far
+        private long maxNodes = 100_000;
+        // Only this many highest-discount coupons enter the search; bounds its setup cost and recursion depth
+        private int maxCandidates = 64;
+        // Wall-clock budget for the same search
+        private long timeBudgetMs = 50;
+    }
+
+    @Data
+    public static class Expiry {
+        // How often the catalog sweeps out coupons whose expiration date has passed
+        private long sweepIntervalMs = 1000;
+        // Also flip isActive=false in the database for swept coupons
+        private boolean deactivateInStorage = false;
+        private int deactivateBatchSize = 500;
+    }
+
+    @Data
+    public static class Metrics {
+        // Time one in this many per-coupon strategy calls; 1 times every call, 0 disables the timers
+        private int strategySampleRate = 64;
+    }
+
+    @Data
+    public static class Redemption {
+        // How often committed redemptions are written back to the database
+        private long flushIntervalMs = 1000;
+        // Flushed counters unused this long are dropped and seeded from the database again on next use
+        private long idleEvictMs = 600_000;
+    }
+
+    @Data
+    public static class Bulk {
+        // Rows persisted per transaction and JDBC batch; keep aligned with hibernate.jdbc.batch_size
+        private int chunkSize = 500;
+        // Row errors listed in the response; further failures are only counted
+        private int maxErrors = 1000;
+    }
+
+    @Data
+    public static class Listing {
+        // Page size of GET /coupons when no limit is given, and the largest limit accepted
+        private int defaultLimit = 100;
+        private int maxLimit = 1000;
+    }
+
+    @Data
+    public static class Session {
+        // Cart sessions kept at once; opening one more evicts a rarely or long unused one
+        private int maxSessions = 10_000;
+        // Sessions untouched for this long are dropped
+        private long idleTimeoutMs = 30 * 60 * 1000;
+        private long sweepIntervalMs = 60_000;
+    }
+
+    @Data
+    public static class Strategies {
+        // Directory scanned for strategy plugin jars (ServiceLoader providers of CouponStrategy); empty disables it
+        private String pluginDir = "";
+        private long scanIntervalMs = 10_000;
+    }
+
+    @Data
+    public static class ResultCache {
+        // Serve repeated identical carts from a cache in front of getApplicableCoupons
+        private boolean enabled = false;
+        private long maxEntries = 10_000;
+        // Entries are also dropped when the catalog changes; the TTL bounds how long an idle entry is kept
+        private long ttlMs = 2_000;
+    }
+
+    @Data
+    public static class Sync {
+        // Follow the coupon change log written by other instances sharing the database
+        private boolean enabled = false;
+        private long pollIntervalMs = 1000;
+        // A poll that finds more entries than this reloads the catalog instead of applying them one by one
+        private int maxChangesPerPoll = 1000;
+        // A missing sequence number is waited for this long, then taken as a rolled-back write
+        private long gapGraceMs = 10_000;
+        // Change-log entries older than this are pruned; an instance further behind reloads in full
+        private long retentionMs = 3_600_000;
+        private long pruneIntervalMs = 60_000;
+    }
+
+    @Data
+    public static class Reactive {
+        // Serve POST /applicable-coupons and /apply-coupon/{id} from a non-blocking Reactor Netty server as well
+        private boolean enabled = false;
+        // Port of that server, next to server.port; 0 picks a free one
+        private int port = 8081;
+    }
+}
@@ -0,0 +1,41 @@
+package com.monkcommerce.coupons.controller;
+
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartItemDelta;
+import com.monkcommerce.coupons.service.CartSessionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental {@code /applicable-coupons} for storefronts that re-check coupons after every cart change.
+ * Open a session with the full cart once, then send only item deltas.
+ */
+@RestController
+public class CartSessionController {
+
+    private final CartSessionService cartSessionService;
+
+    public CartSessionController(CartSessionService cartSessionService) {
+        this.cartSessionService = cartSessionService;
+    }
+
+    @PutMapping("/carts/{cartId}")
+    public Map<String, Object> openSession(@PathVariable String cartId, @RequestBody Cart cart) {
+        return Map.of("applicable_coupons", cartSessionService.open(cartId, cart));
+    }
+
+    // 404 when the session was never opened or has been evicted; the client then re-sends the full cart
+    @PatchMapping("/carts/{cartId}/items")
+    public Map<String, Object> updateItems(@PathVariable String cartId, @RequestBody List<CartItemDelta> deltas) {
+        return Map.of("applicable_coupons", cartSessionService.update(cartId, deltas));
+    }
+
+    @DeleteMapping("/carts/{cartId}")
+    public ResponseEntity<Void> closeSession(@PathVariable String cartId) {
+        cartSessionService.close(cartId);
+        return ResponseEntity.noContent().build();
+    }
+}
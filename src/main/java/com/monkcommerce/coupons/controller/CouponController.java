@@ -1,22 +1,48 @@
 package com.monkcommerce.coupons.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommerce.coupons.model.BulkImportResult;
 import com.monkcommerce.coupons.model.Cart;
 import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponFilter;
+import com.monkcommerce.coupons.model.CouponPage;
+import com.monkcommerce.coupons.service.BatchEvaluation;
+import com.monkcommerce.coupons.service.CouponImportService;
+import com.monkcommerce.coupons.service.CouponQueryService;
 import com.monkcommerce.coupons.service.CouponService;
 import org.apache.coyote.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 @RestController
 public class CouponController {
 
+    private static final Logger log = LoggerFactory.getLogger(CouponController.class);
+
     private final CouponService couponService;
+    private final CouponImportService couponImportService;
+    private final CouponQueryService couponQueryService;
+    private final ObjectMapper objectMapper;
 
-    public CouponController(CouponService couponService) {
+    public CouponController(CouponService couponService, CouponImportService couponImportService,
+                            CouponQueryService couponQueryService, ObjectMapper objectMapper) {
         this.couponService = couponService;
+        this.couponImportService = couponImportService;
+        this.couponQueryService = couponQueryService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/home")
@@ -29,9 +55,41 @@ public class CouponController {
         return couponService.createCoupon(coupon);
     }
 
+    // Accepts a JSON array or NDJSON; the body is parsed as it arrives rather than bound up front
+    @PostMapping("/coupons/bulk")
+    public BulkImportResult importCoupons(InputStream body) throws IOException {
+        return couponImportService.importCoupons(body);
+    }
+
+    // Keyset-paginated by id; pass next_after from the previous page as ?after=
     @GetMapping("/coupons")
-    public List<Coupon> getAllCoupons() {
-        return couponService.getAllCoupons();
+    public CouponPage getAllCoupons(@RequestParam(required = false) String type,
+                                    @RequestParam(required = false) Boolean active,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime expiringBefore,
+                                    @RequestParam(required = false) Long productId,
+                                    @RequestParam(required = false) Long after,
+                                    @RequestParam(required = false) Integer limit) {
+        return couponQueryService.listCoupons(new CouponFilter(type, active, expiringBefore, productId), after, limit);
+    }
+
+    // Same filters as GET /coupons, written as NDJSON while the rows are read
+    @GetMapping("/coupons/export")
+    public ResponseEntity<StreamingResponseBody> exportCoupons(@RequestParam(required = false) String type,
+                                                               @RequestParam(required = false) Boolean active,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime expiringBefore,
+                                                               @RequestParam(required = false) Long productId) {
+        CouponFilter filter = new CouponFilter(type, active, expiringBefore, productId);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                json.setRootValueSeparator(null);
+                couponQueryService.exportCoupons(filter, coupon -> {
+                    json.writeObject(coupon);
+                    json.writeRaw('\n');
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
     }
 
     @GetMapping("/coupons/{id}")
@@ -44,6 +102,61 @@ public class CouponController {
         return couponService.getApplicableCoupons(cart);
     }
 
+    // Single best coupon, or with ?stackable=true the best combination of stackable coupons
+    @PostMapping("/best-coupon")
+    public Map<String, Object> getBestCoupon(@RequestBody Cart cart,
+                                             @RequestParam(defaultValue = "false") boolean stackable) {
+        if (stackable) {
+            return Map.of("best_combination", couponService.getBestCombination(cart));
+        }
+        // Map.of rejects nulls and "no applicable coupon" is a normal answer here
+        return Collections.singletonMap("best_coupon", couponService.getBestCoupon(cart));
+    }
+
+    // Streams {"results":[{"cart_index":0,"applicable_coupons":[...]}, ...],"catalog_version":3} as carts are evaluated.
+    // The request body is bound in full first; only the response is streamed.
+    @PostMapping("/applicable-coupons/batch")
+    public ResponseEntity<StreamingResponseBody> getApplicableCouponsBatch(@RequestBody List<Cart> carts) {
+        // Validated before the 200 is committed; evaluation runs while the response streams
+        BatchEvaluation batch = couponService.getApplicableCouponsBatch(carts);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("results");
+                long version;
+                try {
+                    version = batch.evaluate((index, coupons) -> {
+                        json.writeStartObject();
+                        json.writeNumberField("cart_index", index);
+                        json.writeFieldName("applicable_coupons");
+                        json.writeObject(coupons);
+                        json.writeEndObject();
+                    });
+                } catch (RuntimeException e) {
+                    // The 200 status and earlier results are already sent, so the failure becomes a trailing
+                    // "error" field; a response without "catalog_version" is incomplete
+                    log.error("Batch evaluation failed mid-stream", e);
+                    // Close the results array and any cart entry left open, back to the top-level object
+                    while (!json.getOutputContext().getParent().inRoot()) {
+                        if (json.getOutputContext().inArray()) {
+                            json.writeEndArray();
+                        } else {
+                            json.writeEndObject();
+                        }
+                    }
+                    json.writeStringField("error", "Batch evaluation failed; results are incomplete");
+                    json.writeEndObject();
+                    return;
+                }
+                json.writeEndArray();
+                json.writeNumberField("catalog_version", version);
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     @PostMapping("/apply-coupon/{id}")
     public Map<String, Object> applyCoupon(@PathVariable Long id, @RequestBody Cart cart) {
         Cart updatedCart = couponService.applyCoupon(id, cart);
@@ -0,0 +1,141 @@
+package com.monkcommerce.coupons.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.exception.GlobalExceptionHandler;
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.service.CouponService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking variant of the checkout endpoints, {@code POST /applicable-coupons} and
+ * {@code POST /apply-coupon/{id}}, served by a Reactor Netty server on {@code coupons.reactive.port}
+ * next to the servlet one ({@code coupons.reactive.enabled}).
+ *
+ * A connection holds no thread while its request arrives or its response drains. Requests the in-memory
+ * catalog answers alone run on the event loop; the rest (catalog not loaded yet, a coupon it does not hold,
+ * redemption counters still to be read from storage) move to the bounded elastic scheduler, so JDBC never
+ * blocks an event loop. Responses, including errors, match the servlet endpoints.
+ */
+@Component
+@ConditionalOnProperty(prefix = "coupons.reactive", name = "enabled", havingValue = "true")
+public class ReactiveCouponServer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveCouponServer.class);
+
+    private final CouponService couponService;
+    private final GlobalExceptionHandler exceptionHandler;
+    private final ObjectMapper objectMapper;
+    private final CouponProperties.Reactive settings;
+
+    private volatile DisposableServer server;
+
+    public ReactiveCouponServer(CouponService couponService, GlobalExceptionHandler exceptionHandler,
+                                ObjectMapper objectMapper, CouponProperties properties) {
+        this.couponService = couponService;
+        this.exceptionHandler = exceptionHandler;
+        this.objectMapper = objectMapper;
+        this.settings = properties.getReactive();
+    }
+
+    RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .POST("/applicable-coupons", this::getApplicableCoupons)
+                .POST("/apply-coupon/{id}", this::applyCoupon)
+                .onError(Throwable.class, (e, request) -> error(e))
+                .build();
+    }
+
+    private Mono<ServerResponse> getApplicableCoupons(ServerRequest request) {
+        return cart(request)
+                .flatMap(cart -> call(couponService.evaluatesFromMemory(), () -> couponService.getApplicableCoupons(cart)))
+                .flatMap(ReactiveCouponServer::ok);
+    }
+
+    private Mono<ServerResponse> applyCoupon(ServerRequest request) {
+        // Parsed inside the pipeline so a malformed id reaches the error handler as a 400
+        return Mono.fromCallable(() -> Long.valueOf(request.pathVariable("id")))
+                .zipWith(cart(request))
+                .flatMap(args -> apply(args.getT1(), args.getT2()))
+                .flatMap(ReactiveCouponServer::ok);
+    }
+
+    private Mono<Map<String, Object>> apply(Long id, Cart cart) {
+        return call(couponService.appliesFromMemory(id, cart.getUserId()),
+                () -> Map.of("updated_cart", couponService.applyCoupon(id, cart)));
+    }
+
+    private static Mono<Cart> cart(ServerRequest request) {
+        return request.bodyToMono(Cart.class)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Required request body is missing")));
+    }
+
+    // On the event loop when the answer is in memory, otherwise on a worker that may block on storage
+    private static <T> Mono<T> call(boolean inMemory, Callable<T> work) {
+        Mono<T> result = Mono.fromCallable(work);
+        return inMemory ? result : result.subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Mono<ServerResponse> ok(Object body) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+    }
+
+    private Mono<ServerResponse> error(Throwable e) {
+        ResponseEntity<Map<String, Object>> response = exceptionHandler.toResponse(e);
+        return ServerResponse.status(response.getStatusCode()).contentType(MediaType.APPLICATION_JSON).bodyValue(response.getBody());
+    }
+
+    @Override
+    public void start() {
+        // The application's ObjectMapper, so JSON reads and writes exactly as on the servlet endpoints
+        HandlerStrategies strategies = HandlerStrategies.builder().codecs(codecs -> {
+            codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+            codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+        }).build();
+        HttpHandler handler = RouterFunctions.toHttpHandler(routes(), strategies);
+        server = HttpServer.create().port(settings.getPort()).handle(new ReactorHttpHandlerAdapter(handler)).bindNow();
+        log.info("Non-blocking checkout endpoints listening on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer running = server;
+        if (running != null) {
+            running.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    // The bound port, which differs from coupons.reactive.port when that is 0
+    public int port() {
+        return server.port();
+    }
+}
@@ -0,0 +1,7 @@
+package com.monkcommerce.coupons.exception;
+
+public class BatchTooLargeException extends RuntimeException {
+    public BatchTooLargeException(String message) {
+        super(message);
+    }
+}
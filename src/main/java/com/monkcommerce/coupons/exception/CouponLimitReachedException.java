@@ -0,0 +1,7 @@
+package com.monkcommerce.coupons.exception;
+
+public class CouponLimitReachedException extends RuntimeException {
+    public CouponLimitReachedException(String message) {
+        super(message);
+    }
+}
@@ -1,5 +1,6 @@
 package com.monkcommerce.coupons.exception;
 
+import com.monkcommerce.coupons.metrics.CouponMetrics;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -12,9 +13,29 @@ import java.util.Map;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final CouponMetrics couponMetrics;
+
+    public GlobalExceptionHandler(CouponMetrics couponMetrics) {
+        this.couponMetrics = couponMetrics;
+    }
+
+    /**
+     * The response the handlers below give for this exception, for endpoints served outside Spring MVC.
+     */
+    public ResponseEntity<Map<String, Object>> toResponse(Throwable ex) {
+        if (ex instanceof ResourceNotFoundException notFound) {
+            return handleNotFound(notFound);
+        }
+        if (ex instanceof RuntimeException runtime) {
+            return handleRuntimeException(runtime);
+        }
+        return handleGeneralException(ex instanceof Exception checked ? checked : new RuntimeException(ex));
+    }
+
     // 1. Handle "Not Found" specifically (Returns 404)
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<Map<String, Object>> handleNotFound(ResourceNotFoundException ex) {
+        couponMetrics.recordError(ex.getClass());
         Map<String, Object> body = new HashMap<>();
         body.put("timestamp", LocalDateTime.now());
         body.put("status", HttpStatus.NOT_FOUND.value());
@@ -27,6 +48,7 @@ public class GlobalExceptionHandler {
     // 2. Handle "Invalid Logic" or generic RuntimeExceptions (Returns 400 Bad Request)
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, Object>> handleRuntimeException(RuntimeException ex) {
+        couponMetrics.recordError(ex.getClass());
         Map<String, Object> body = new HashMap<>();
         body.put("timestamp", LocalDateTime.now());
         body.put("status", HttpStatus.BAD_REQUEST.value());
@@ -39,6 +61,7 @@ public class GlobalExceptionHandler {
     // 3. Handle unexpected system crashes (Returns 500)
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGeneralException(Exception ex) {
+        couponMetrics.recordError(ex.getClass());
         Map<String, Object> body = new HashMap<>();
         body.put("timestamp", LocalDateTime.now());
         body.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
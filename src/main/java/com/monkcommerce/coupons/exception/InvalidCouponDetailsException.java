@@ -0,0 +1,7 @@
+package com.monkcommerce.coupons.exception;
+
+public class InvalidCouponDetailsException extends RuntimeException {
+    public InvalidCouponDetailsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,139 @@
+package com.monkcommerce.coupons.metrics;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for coupon evaluation.
+ *
+ * Meters are registered once and cached (per strategy type, per exception class), so recording
+ * never builds tags or formats strings. Per-coupon strategy timers are sampled: only one call in
+ * {@code coupons.metrics.strategy-sample-rate} is timed.
+ */
+@Component
+public class CouponMetrics {
+
+    public enum Phase {
+        IS_APPLICABLE("isApplicable"),
+        COMPUTE_DISCOUNT("computeDiscount"),
+        APPLY_DISCOUNT("applyDiscount");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final int sampleRate;
+    private final Timer catalogLoad;
+    private final DistributionSummary cartItems;
+    private final DistributionSummary candidates;
+    private final DistributionSummary results;
+    private final Counter syncChanges;
+    private final Counter syncResyncs;
+    private final ConcurrentMap<String, Timer[]> strategyTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    public CouponMetrics(MeterRegistry registry, CouponProperties properties) {
+        this.registry = registry;
+        this.sampleRate = properties.getMetrics().getStrategySampleRate();
+        this.catalogLoad = Timer.builder("coupons.catalog.load")
+                .description("Time to load and compile the coupon catalog")
+                .register(registry);
+        this.cartItems = DistributionSummary.builder("coupons.evaluation.cart.items")
+                .description("Items per evaluated cart")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.candidates = DistributionSummary.builder("coupons.evaluation.candidates")
+                .description("Coupons evaluated per cart after index lookup")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.results = DistributionSummary.builder("coupons.evaluation.results")
+                .description("Applicable coupons returned per cart")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.syncChanges = Counter.builder("coupons.catalog.sync.changes")
+                .description("Change-log entries applied to the catalog incrementally")
+                .register(registry);
+        this.syncResyncs = Counter.builder("coupons.catalog.sync.resyncs")
+                .description("Full catalog reloads by the change-log poller")
+                .register(registry);
+    }
+
+    public void recordCatalogLoad(long nanos) {
+        catalogLoad.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCatalogSync(int changes) {
+        syncChanges.increment(changes);
+    }
+
+    public void recordCatalogResync() {
+        syncResyncs.increment();
+    }
+
+    // Size of the in-memory catalog, i.e. what a full scan would have had to evaluate
+    public void registerCatalogSize(Supplier<Number> size) {
+        Gauge.builder("coupons.catalog.size", size)
+                .description("Active coupons held by the in-memory catalog")
+                .register(registry);
+    }
+
+    // Hit, miss, eviction and size meters (cache.gets, cache.evictions, ...) tagged cache=<name>
+    public void registerCache(Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    public void recordEvaluation(int cartItemCount, int candidateCount, int resultCount) {
+        cartItems.record(cartItemCount);
+        candidates.record(candidateCount);
+        results.record(resultCount);
+    }
+
+    /**
+     * Whether the current per-coupon call should be timed.
+     */
+    public boolean sample() {
+        return sampleRate == 1 || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+    }
+
+    public void recordStrategy(String type, Phase phase, long nanos) {
+        strategyTimers.computeIfAbsent(type, this::registerStrategyTimers)[phase.ordinal()]
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordError(Class<? extends Throwable> type) {
+        errorCounters.computeIfAbsent(type, t -> Counter.builder("coupons.errors")
+                .description("Exceptions mapped to error responses")
+                .tag("exception", t.getSimpleName())
+                .register(registry)).increment();
+    }
+
+    private Timer[] registerStrategyTimers(String type) {
+        Phase[] phases = Phase.values();
+        Timer[] timers = new Timer[phases.length];
+        for (Phase phase : phases) {
+            timers[phase.ordinal()] = Timer.builder("coupons.strategy")
+                    .description("Strategy evaluation time (sampled for per-coupon phases)")
+                    .tag("type", type)
+                    .tag("phase", phase.tag)
+                    .register(registry);
+        }
+        return timers;
+    }
+}
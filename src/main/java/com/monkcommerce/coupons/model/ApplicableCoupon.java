@@ -0,0 +1,9 @@
+package com.monkcommerce.coupons.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One entry of the {@code applicable_coupons} response: the coupon and the discount it would give.
+ */
+public record ApplicableCoupon(@JsonProperty("coupon_id") Long couponId, String type, double discount) {
+}
@@ -0,0 +1,14 @@
+package com.monkcommerce.coupons.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Result of the stackable best-coupon search. {@code exhaustive} is false when the
+ * search budget ran out and the combination is the best found so far rather than proven optimal.
+ */
+public record BestCombination(List<ApplicableCoupon> coupons,
+                              @JsonProperty("total_discount") double totalDiscount,
+                              boolean exhaustive) {
+}
@@ -0,0 +1,16 @@
+package com.monkcommerce.coupons.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Outcome of {@code POST /coupons/bulk}. Rows are numbered from 0 in input order; only the first
+ * {@code coupons.bulk.max-errors} failures are listed, {@code failed} always has the full count.
+ */
+public record BulkImportResult(int imported, int failed, List<RowError> errors,
+                               @JsonProperty("errors_truncated") boolean errorsTruncated) {
+
+    public record RowError(int row, String message) {
+    }
+}
@@ -13,6 +13,9 @@ public class Cart {
     private double totalDiscount;
     private double finalPrice;
 
+    // Optional: identifies the shopper for per-user redemption limits
+    private String userId;
+
     private List<CartItem> items;
 
     /**
@@ -25,6 +28,7 @@ public class Cart {
         copy.setTotalPrice(this.totalPrice);
         copy.setTotalDiscount(this.totalDiscount);
         copy.setFinalPrice(this.finalPrice);
+        copy.setUserId(this.userId);
 
         if (this.items != null) {
             List<CartItem> newItems = new ArrayList<>();
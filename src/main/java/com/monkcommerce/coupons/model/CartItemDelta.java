@@ -0,0 +1,8 @@
+package com.monkcommerce.coupons.model;
+
+/**
+ * A change to one product line of a cart session: {@code quantity} is added to the line
+ * (negative to remove units) and {@code price} is the unit price used when the line is new.
+ */
+public record CartItemDelta(Long productId, int quantity, double price) {
+}
@@ -0,0 +1,186 @@
+package com.monkcommerce.coupons.model;
+
+import com.monkcommerce.coupons.utils.Money;
+
+import java.util.List;
+
+/**
+ * Read-only, primitive snapshot of a {@link Cart} used for dry-run evaluation.
+ *
+ * Built once per request and shared by every coupon evaluated against it, so
+ * computing a discount never copies or mutates the incoming cart. Items without a
+ * product id are left out since no rule can match them. Prices and the total are held
+ * in minor units (see {@link Money}), converted once here, and the same pass aggregates the lines
+ * per product (see {@link ProductTotals}), so a product appearing on several lines is looked up once.
+ */
+public final class CartView {
+
+    private final Cart cart;
+    private final long[] productIds;
+    private final int[] quantities;
+    private final long[] prices;
+    // Position of each line in cart.getItems(), which also holds the items left out here
+    private final int[] itemIndexes;
+    private final int size;
+    private final long totalPrice;
+    private final ProductTotals productTotals;
+
+    private CartView(Cart cart) {
+        this.cart = cart;
+        List<CartItem> items = cart == null ? null : cart.getItems();
+        int capacity = items == null ? 0 : items.size();
+        this.productIds = new long[capacity];
+        this.quantities = new int[capacity];
+        this.prices = new long[capacity];
+        this.itemIndexes = new int[capacity];
+        this.productTotals = new ProductTotals(capacity);
+        int n = 0;
+        for (int i = 0; i < capacity; i++) {
+            CartItem item = items.get(i);
+            if (item == null || item.getProductId() == null) {
+                continue;
+            }
+            productIds[n] = item.getProductId();
+            quantities[n] = item.getQuantity();
+            prices[n] = Money.toMinor(item.getPrice());
+            itemIndexes[n] = i;
+            productTotals.add(productIds[n], quantities[n], prices[n]);
+            n++;
+        }
+        this.size = n;
+        this.totalPrice = cart == null ? 0 : Money.toMinor(cart.getTotalPrice());
+    }
+
+    public static CartView of(Cart cart) {
+        return new CartView(cart);
+    }
+
+    // The source cart, for strategies that can only work on the full model; must not be mutated
+    public Cart cart() {
+        return cart;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long productId(int index) {
+        return productIds[index];
+    }
+
+    public int quantity(int index) {
+        return quantities[index];
+    }
+
+    public int itemIndex(int index) {
+        return itemIndexes[index];
+    }
+
+    // Unit price in minor units
+    public long price(int index) {
+        return prices[index];
+    }
+
+    // Client-supplied cart total in minor units
+    public long totalPrice() {
+        return totalPrice;
+    }
+
+    /**
+     * The cart's lines aggregated per product, built in the same pass as the view.
+     */
+    public ProductTotals productTotals() {
+        return productTotals;
+    }
+
+    /**
+     * Distinct products of the cart, in order of first appearance, with their total quantity and subtotal
+     * (quantity x unit price, in minor units) over all lines holding them.
+     *
+     * Lookups by product id go through an open-addressing table of {@code long} keys with linear probing,
+     * so strategies can ask about a product in O(1) without boxing, however many lines or coupons there are.
+     */
+    public static final class ProductTotals {
+
+        private final long[] productIds;
+        private final int[] quantities;
+        private final long[] subtotals;
+        private int size;
+        // Slot -> product index + 1, 0 when empty; capacity is a power of two at most half full
+        private final int[] slots;
+        private final int shift;
+
+        private ProductTotals(int lines) {
+            int capacity = Integer.highestOneBit(Math.max(lines, 2) * 2 - 1) << 1;
+            this.slots = new int[capacity];
+            this.shift = Long.numberOfLeadingZeros(capacity - 1);
+            this.productIds = new long[lines];
+            this.quantities = new int[lines];
+            this.subtotals = new long[lines];
+        }
+
+        private void add(long productId, int quantity, long price) {
+            int slot = slot(productId);
+            int index = slots[slot] - 1;
+            if (index < 0) {
+                index = size++;
+                slots[slot] = index + 1;
+                productIds[index] = productId;
+            }
+            quantities[index] += quantity;
+            subtotals[index] = Math.addExact(subtotals[index], Money.times(price, quantity));
+        }
+
+        // The slot holding the product, or the empty slot where it would go
+        private int slot(long productId) {
+            int mask = slots.length - 1;
+            // Fibonacci hashing: the multiply spreads sequential ids, the top bits pick the slot
+            int slot = (int) ((productId * 0x9E3779B97F4A7C15L) >>> shift);
+            while (slots[slot] != 0 && productIds[slots[slot] - 1] != productId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long productId(int index) {
+            return productIds[index];
+        }
+
+        public int quantity(int index) {
+            return quantities[index];
+        }
+
+        public long subtotal(int index) {
+            return subtotals[index];
+        }
+
+        // Index of the product, or -1 if the cart does not hold it
+        public int indexOf(long productId) {
+            return slots[slot(productId)] - 1;
+        }
+
+        public boolean contains(long productId) {
+            return indexOf(productId) >= 0;
+        }
+
+        // Total quantity of the product, 0 if the cart does not hold it
+        public int quantityOf(long productId) {
+            int index = indexOf(productId);
+            return index < 0 ? 0 : quantities[index];
+        }
+
+        // Subtotal of the product in minor units, 0 if the cart does not hold it
+        public long subtotalOf(long productId) {
+            int index = indexOf(productId);
+            return index < 0 ? 0 : subtotals[index];
+        }
+    }
+}
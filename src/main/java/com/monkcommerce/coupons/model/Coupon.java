@@ -1,20 +1,31 @@
 package com.monkcommerce.coupons.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.monkcommerce.coupons.utils.JsonConverter;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 import java.util.Map;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "coupons")
 @Data
 @NoArgsConstructor
-@Table(name = "coupons")
+@Table(name = "coupons", indexes = {
+        // Catalog load and listing filters: active coupons of a type, optionally bounded by expiry
+        @Index(name = "idx_coupons_active_type_expiry", columnList = "isActive, type, expirationDate"),
+        @Index(name = "idx_coupons_expiry", columnList = "expirationDate")
+})
 public class Coupon {
 
+    // Sequence ids (allocated 50 at a time) let Hibernate batch inserts; IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupon_seq")
+    @SequenceGenerator(name = "coupon_seq", sequenceName = "coupon_seq", allocationSize = 50)
     private Long id;
 
     // Examples: "cart-wise", "product-wise", "bxgy"
@@ -29,5 +40,13 @@ public class Coupon {
     private LocalDateTime expirationDate; // Bonus feature
 
     private boolean isActive = true;
+
+    // Redemption caps; null means unlimited. Per-user caps need a userId on the cart being applied to.
+    private Integer maxRedemptions;
+    private Integer maxRedemptionsPerUser;
+
+    // Committed redemptions as last flushed by RedemptionTracker; the live count is held in memory
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long redemptionCount;
 }
 
@@ -0,0 +1,36 @@
+package com.monkcommerce.coupons.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the coupon change log: coupon {@code couponId} was written by the transaction that
+ * inserted this entry. Other instances poll the log to re-read changed coupons into their catalogs.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "coupon_changes", indexes = @Index(name = "idx_coupon_changes_changed_at", columnList = "changedAt"))
+public class CouponChange {
+
+    // Taken from a database sequence, so concurrent writers never wait on each other. Numbers are
+    // increasing but not in commit order, and a rolled-back writer leaves a permanent gap
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupon_changes_seq")
+    @SequenceGenerator(name = "coupon_changes_seq", sequenceName = "coupon_changes_seq", allocationSize = 1)
+    private Long seq;
+
+    @Column(nullable = false)
+    private Long couponId;
+
+    @Column(nullable = false)
+    private LocalDateTime changedAt;
+
+    public CouponChange(Long couponId, LocalDateTime changedAt) {
+        this.couponId = couponId;
+        this.changedAt = changedAt;
+    }
+}
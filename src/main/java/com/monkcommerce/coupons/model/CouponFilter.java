@@ -0,0 +1,10 @@
+package com.monkcommerce.coupons.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional criteria for listing and exporting coupons; null fields do not filter.
+ * {@code expiringBefore} matches coupons with an expiration date strictly before it.
+ */
+public record CouponFilter(String type, Boolean active, LocalDateTime expiringBefore, Long productId) {
+}
@@ -0,0 +1,12 @@
+package com.monkcommerce.coupons.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One page of {@code GET /coupons}, ordered by id. Pass {@code next_after} back as {@code after}
+ * to get the next page; it is null on the last page.
+ */
+public record CouponPage(List<Coupon> coupons, @JsonProperty("next_after") Long nextAfter) {
+}
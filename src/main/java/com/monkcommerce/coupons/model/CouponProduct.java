@@ -0,0 +1,34 @@
+package com.monkcommerce.coupons.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One product a coupon's rule buys or discounts, extracted from its {@code details} JSON so product
+ * lookups use an index instead of scanning the TEXT column.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "coupon_products",
+        uniqueConstraints = @UniqueConstraint(name = "uk_coupon_products_coupon_product", columnNames = {"couponId", "productId"}),
+        indexes = @Index(name = "idx_coupon_products_product", columnList = "productId, couponId"))
+public class CouponProduct {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupon_product_seq")
+    @SequenceGenerator(name = "coupon_product_seq", sequenceName = "coupon_product_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long couponId;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    public CouponProduct(Long couponId, Long productId) {
+        this.couponId = couponId;
+        this.productId = productId;
+    }
+}
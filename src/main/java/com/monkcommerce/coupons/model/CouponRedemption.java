@@ -0,0 +1,33 @@
+package com.monkcommerce.coupons.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Committed redemptions of one coupon by one user, kept for per-user limits.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "coupon_redemptions",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"couponId", "userId"}))
+public class CouponRedemption {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long couponId;
+
+    @Column(nullable = false)
+    private String userId;
+
+    private long count;
+
+    public CouponRedemption(Long couponId, String userId) {
+        this.couponId = couponId;
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,34 @@
+package com.monkcommerce.coupons.repository;
+
+import com.monkcommerce.coupons.model.CouponChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CouponChangeRepository extends JpaRepository<CouponChange, Long> {
+
+    // Highest committed sequence number, an index lookup on the primary key; null while the log is empty
+    @Query("select max(c.seq) from CouponChange c")
+    Long lastSeq();
+
+    // Entries in (after, upTo], oldest first
+    @Query("select c from CouponChange c where c.seq > :after and c.seq <= :upTo order by c.seq")
+    List<CouponChange> findRange(@Param("after") long after, @Param("upTo") long upTo);
+
+    // Sequence numbers in (after, upTo], without loading the entries
+    @Query("select c.seq from CouponChange c where c.seq > :after and c.seq <= :upTo order by c.seq")
+    List<Long> findSeqRange(@Param("after") long after, @Param("upTo") long upTo);
+
+    // The newest entry is always kept so the head never goes backwards on a quiet log
+    @Transactional
+    @Modifying
+    @Query("delete from CouponChange c where c.changedAt < :cutoff and c.seq < :keep")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff, @Param("keep") long keep);
+}
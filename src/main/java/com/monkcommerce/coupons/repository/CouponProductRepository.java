@@ -0,0 +1,13 @@
+package com.monkcommerce.coupons.repository;
+
+import com.monkcommerce.coupons.model.CouponProduct;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CouponProductRepository extends JpaRepository<CouponProduct, Long> {
+
+    List<CouponProduct> findByProductId(Long productId);
+}
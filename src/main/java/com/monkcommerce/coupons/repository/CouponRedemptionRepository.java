@@ -0,0 +1,13 @@
+package com.monkcommerce.coupons.repository;
+
+import com.monkcommerce.coupons.model.CouponRedemption;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CouponRedemptionRepository extends JpaRepository<CouponRedemption, Long>, CouponRedemptionRepositoryCustom {
+
+    Optional<CouponRedemption> findByCouponIdAndUserId(Long couponId, String userId);
+}
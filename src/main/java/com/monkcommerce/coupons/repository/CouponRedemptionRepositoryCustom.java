@@ -0,0 +1,14 @@
+package com.monkcommerce.coupons.repository;
+
+import com.monkcommerce.coupons.model.CouponRedemption;
+
+import java.util.Collection;
+
+public interface CouponRedemptionRepositoryCustom {
+
+    /**
+     * Adds each row's {@code count} to the stored count of its coupon/user pair, inserting pairs not yet
+     * stored, in one JDBC batch and transaction.
+     */
+    void addCounts(Collection<CouponRedemption> deltas);
+}
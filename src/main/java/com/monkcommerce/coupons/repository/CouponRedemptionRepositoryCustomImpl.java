@@ -0,0 +1,38 @@
+package com.monkcommerce.coupons.repository;
+
+import com.monkcommerce.coupons.model.CouponRedemption;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+class CouponRedemptionRepositoryCustomImpl implements CouponRedemptionRepositoryCustom {
+
+    // One statement per pair instead of a find plus a save
+    private static final String ADD_COUNT = """
+            merge into coupon_redemptions r
+            using (select cast(? as bigint) coupon_id, cast(? as varchar(255)) user_id, cast(? as bigint) delta) d
+            on r.coupon_id = d.coupon_id and r.user_id = d.user_id
+            when matched then update set count = r.count + d.delta
+            when not matched then insert (coupon_id, user_id, count) values (d.coupon_id, d.user_id, d.delta)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    CouponRedemptionRepositoryCustomImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void addCounts(Collection<CouponRedemption> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        for (CouponRedemption delta : deltas) {
+            rows.add(new Object[]{delta.getCouponId(), delta.getUserId(), delta.getCount()});
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(ADD_COUNT, rows));
+    }
+}
@@ -1,9 +1,76 @@
 package com.monkcommerce.coupons.repository;
 
 import com.monkcommerce.coupons.model.Coupon;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CouponRepository extends JpaRepository<Coupon,Long> {
+public interface CouponRepository extends JpaRepository<Coupon,Long>, CouponRepositoryCustom {
+
+    String FILTER = "(:type is null or c.type = :type)"
+            + " and (:active is null or c.isActive = :active)"
+            + " and (:expiringBefore is null or c.expirationDate < :expiringBefore)";
+
+    // Only coupons that can currently apply; served by idx_coupons_active_type_expiry
+    @Query("select c from Coupon c where c.isActive = true and (c.expirationDate is null or c.expirationDate > :now)")
+    List<Coupon> findActive(@Param("now") LocalDateTime now);
+
+    // Keyset page: rows after the given id, so deep pages cost the same as the first
+    @Query("select c from Coupon c where c.id > :after and " + FILTER + " order by c.id")
+    List<Coupon> findPage(@Param("after") long after, @Param("type") String type, @Param("active") Boolean active,
+                          @Param("expiringBefore") LocalDateTime expiringBefore, Limit limit);
+
+    // Keyset page restricted to coupons involving a product, via the coupon_products side table
+    @Query("select c from Coupon c where c.id > :after and c.id in"
+            + " (select p.couponId from CouponProduct p where p.productId = :productId) and " + FILTER + " order by c.id")
+    List<Coupon> findPageByProduct(@Param("after") long after, @Param("productId") long productId,
+                                   @Param("type") String type, @Param("active") Boolean active,
+                                   @Param("expiringBefore") LocalDateTime expiringBefore, Limit limit);
+
+    // Keyset page of coupons without coupon_products rows: saved before that table existed, or cart-wide
+    @Query("select c from Coupon c where c.id > :after"
+            + " and not exists (select p.id from CouponProduct p where p.couponId = c.id) order by c.id")
+    List<Coupon> findPageWithoutProducts(@Param("after") long after, Limit limit);
+
+    // Must be consumed inside a transaction and closed; rows are fetched from the cursor in batches
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Coupon c where " + FILTER + " order by c.id")
+    Stream<Coupon> streamAll(@Param("type") String type, @Param("active") Boolean active,
+                             @Param("expiringBefore") LocalDateTime expiringBefore);
+
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Coupon c where c.id in"
+            + " (select p.couponId from CouponProduct p where p.productId = :productId) and " + FILTER + " order by c.id")
+    Stream<Coupon> streamAllByProduct(@Param("productId") long productId, @Param("type") String type,
+                                      @Param("active") Boolean active,
+                                      @Param("expiringBefore") LocalDateTime expiringBefore);
+
+    @Transactional
+    @Modifying
+    @Query("update Coupon c set c.isActive = false where c.id in :ids")
+    int deactivateAll(@Param("ids") Collection<Long> ids);
+
+    // Read past the second-level cache, which may hold a count from before the last flush
+    @Query("select c.redemptionCount from Coupon c where c.id = :id")
+    Optional<Long> findRedemptionCount(@Param("id") Long id);
 }
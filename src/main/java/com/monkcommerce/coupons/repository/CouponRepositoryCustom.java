@@ -0,0 +1,12 @@
+package com.monkcommerce.coupons.repository;
+
+import java.util.Map;
+
+public interface CouponRepositoryCustom {
+
+    /**
+     * Adds each delta to its coupon's {@code redemptionCount} in one JDBC batch and transaction, then evicts
+     * only those coupons from the second-level cache.
+     */
+    void addRedemptions(Map<Long, Long> deltas);
+}
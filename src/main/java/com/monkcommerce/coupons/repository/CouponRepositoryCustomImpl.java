@@ -0,0 +1,39 @@
+package com.monkcommerce.coupons.repository;
+
+import com.monkcommerce.coupons.model.Coupon;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+class CouponRepositoryCustomImpl implements CouponRepositoryCustom {
+
+    private static final String ADD_REDEMPTIONS = "update coupons set redemption_count = redemption_count + ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    CouponRepositoryCustomImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void addRedemptions(Map<Long, Long> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((id, delta) -> rows.add(new Object[]{delta, id}));
+        // Plain JDBC: a bulk JPQL update would clear the whole "coupons" region
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(ADD_REDEMPTIONS, rows));
+        // After the commit, so a concurrent read cannot cache the old count again
+        Cache cache = entityManagerFactory.getCache();
+        deltas.keySet().forEach(id -> cache.evict(Coupon.class, id));
+    }
+}
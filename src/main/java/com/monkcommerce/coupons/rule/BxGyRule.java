@@ -0,0 +1,102 @@
+package com.monkcommerce.coupons.rule;
+
+import com.monkcommerce.coupons.utils.PrimitiveSort;
+
+import java.util.Arrays;
+
+/**
+ * Compiled "bxgy" details. Buy and get entries are kept as parallel primitive arrays
+ * (buyIds[i] needs buyQty[i] units, getIds[i] rewards getQty[i] units).
+ * The arrays are owned by the rule and must not be modified after compilation.
+ *
+ * The remaining components are lookups derived once from those arrays, so evaluating a cart costs
+ * a binary search per cart product instead of a scan of every buy and get entry:
+ * {@code sortedBuyIds}/{@code sortedBuyQty} are the buy entries ordered by product id (duplicates kept),
+ * {@code sortedGetIds} the distinct get product ids, and {@code freePerSet} the units one completed set earns.
+ */
+public record BxGyRule(long[] buyIds, int[] buyQty,
+                       long[] getIds, int[] getQty,
+                       int repetitionLimit, RewardAllocation allocation,
+                       long[] sortedBuyIds, int[] sortedBuyQty, long[] sortedGetIds, int freePerSet) implements CouponRule {
+
+    public BxGyRule(long[] buyIds, int[] buyQty, long[] getIds, int[] getQty, int repetitionLimit, RewardAllocation allocation) {
+        this(buyIds, buyQty, getIds, getQty, repetitionLimit, allocation,
+                new long[buyIds.length], new int[buyIds.length], distinctSorted(getIds), sum(getQty));
+        int[] order = new int[buyIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        PrimitiveSort.sortIndexes(order, order.length, buyIds);
+        for (int i = 0; i < order.length; i++) {
+            sortedBuyIds[i] = buyIds[order[i]];
+            sortedBuyQty[i] = buyQty[order[i]];
+        }
+    }
+
+    // A cart without any buy product can never complete a set, so only buy ids are indexed
+    @Override
+    public long[] productIds() {
+        return buyIds;
+    }
+
+    // Only the free "get" lines are discounted
+    @Override
+    public long[] discountedProductIds() {
+        return getIds;
+    }
+
+    // The bought units pay for the free ones, so another coupon may not discount them either
+    @Override
+    public long[] claimedProductIds() {
+        long[] ids = Arrays.copyOf(buyIds, buyIds.length + getIds.length);
+        System.arraycopy(getIds, 0, ids, buyIds.length, getIds.length);
+        return distinctSorted(ids);
+    }
+
+    public boolean buys(long productId) {
+        return Arrays.binarySearch(sortedBuyIds, productId) >= 0;
+    }
+
+    public boolean rewards(long productId) {
+        return Arrays.binarySearch(sortedGetIds, productId) >= 0;
+    }
+
+    /**
+     * Completed buy sets for {@code quantity} units of one product: each buy entry for the product
+     * counts its own sets, as when the same product is listed twice.
+     */
+    public int setsFor(long productId, int quantity) {
+        int at = Arrays.binarySearch(sortedBuyIds, productId);
+        if (at < 0) {
+            return 0;
+        }
+        while (at > 0 && sortedBuyIds[at - 1] == productId) {
+            at--;
+        }
+        int sets = 0;
+        for (; at < sortedBuyIds.length && sortedBuyIds[at] == productId; at++) {
+            sets += quantity / sortedBuyQty[at];
+        }
+        return sets;
+    }
+
+    private static long[] distinctSorted(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (n == 0 || sorted[i] != sorted[n - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+
+    private static int sum(int[] values) {
+        int total = 0;
+        for (int v : values) {
+            total += v;
+        }
+        return total;
+    }
+}
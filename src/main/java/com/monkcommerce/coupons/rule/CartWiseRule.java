@@ -0,0 +1,25 @@
+package com.monkcommerce.coupons.rule;
+
+/**
+ * Compiled "cart-wise" details: percent discount once the cart total exceeds the threshold.
+ * The threshold is in minor units and the discount in basis points (see {@link com.monkcommerce.coupons.utils.Money}).
+ */
+public record CartWiseRule(long threshold, long discountBps) implements CouponRule {
+
+    private static final long[] NO_PRODUCTS = new long[0];
+
+    @Override
+    public long[] productIds() {
+        return NO_PRODUCTS;
+    }
+
+    @Override
+    public long[] discountedProductIds() {
+        return NO_PRODUCTS;
+    }
+
+    @Override
+    public long minCartTotal() {
+        return threshold;
+    }
+}
@@ -0,0 +1,36 @@
+package com.monkcommerce.coupons.rule;
+
+/**
+ * Typed, immutable form of a coupon's {@code details}.
+ * Rules are compiled once when the catalog is loaded so the request path never
+ * has to look into the raw JSON-backed map again.
+ */
+public interface CouponRule {
+
+    /**
+     * Product ids of which the cart must contain at least one for the rule to apply.
+     * An empty array marks a cart-wide rule that is selected by {@link #minCartTotal()} instead.
+     */
+    long[] productIds();
+
+    /**
+     * Cart total, in minor units, a cart-wide rule requires to be exceeded. Ignored for product-keyed rules.
+     */
+    default long minCartTotal() {
+        return 0;
+    }
+
+    /**
+     * Product ids whose lines this rule discounts. An empty array means the discount is taken
+     * off the whole cart, and such a coupon never stacks with another.
+     */
+    long[] discountedProductIds();
+
+    /**
+     * Product ids whose lines this rule uses up when applied: the discounted ones plus any that only
+     * qualify the cart for the discount. Two coupons can only be stacked when these sets are disjoint.
+     */
+    default long[] claimedProductIds() {
+        return discountedProductIds();
+    }
+}
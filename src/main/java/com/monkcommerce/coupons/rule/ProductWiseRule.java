@@ -0,0 +1,18 @@
+package com.monkcommerce.coupons.rule;
+
+/**
+ * Compiled "product-wise" details: percent discount on every line of a single product,
+ * in basis points (see {@link com.monkcommerce.coupons.utils.Money}).
+ */
+public record ProductWiseRule(long productId, long discountBps) implements CouponRule {
+
+    @Override
+    public long[] productIds() {
+        return new long[]{productId};
+    }
+
+    @Override
+    public long[] discountedProductIds() {
+        return productIds();
+    }
+}
@@ -0,0 +1,38 @@
+package com.monkcommerce.coupons.rule;
+
+/**
+ * Which "get" units a BxGy coupon gives away when the cart holds more eligible units than it earned,
+ * set per coupon by {@code details.reward_allocation}.
+ */
+public enum RewardAllocation {
+
+    // In cart line order, the original behaviour and the default
+    CART_ORDER("cart_order"),
+    // Lowest unit price first; ties in cart line order
+    CHEAPEST_FIRST("cheapest_first"),
+    // Highest unit price first; ties in cart line order
+    MOST_EXPENSIVE_FIRST("most_expensive_first");
+
+    private final String value;
+
+    RewardAllocation(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    // Absent means CART_ORDER; returns null for an unknown value so the details are rejected
+    public static RewardAllocation parse(Object value) {
+        if (value == null) {
+            return CART_ORDER;
+        }
+        for (RewardAllocation allocation : values()) {
+            if (allocation.value.equals(value)) {
+                return allocation;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+package com.monkcommerce.coupons.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.monkcommerce.coupons.catalog.CatalogSnapshot;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
+import com.monkcommerce.coupons.model.ApplicableCoupon;
+import com.monkcommerce.coupons.model.CartView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Optional bounded cache of applicable-coupon results ({@code coupons.result-cache.*}), for the many
+ * requests that send a cart identical to a recent one.
+ *
+ * The key is the catalog snapshot version plus the cart as the evaluation sees it: each line's
+ * (productId, quantity, unit price in cents) in cart order and the cart total. Line order is kept because
+ * BxGy rewards in cart order by default. Keys compare their full contents, so a hash collision can only
+ * cost a lookup, never a wrong answer. Creating, changing or expiring a coupon publishes a new snapshot
+ * version; the first lookup that sees it drops every older entry.
+ *
+ * Only the fields read by the built-in strategies are part of the key. Plugin strategies that look at
+ * other cart fields should not be combined with this cache.
+ */
+@Component
+public class ApplicableCouponsCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ApplicableCouponsCache.class);
+
+    // Null when disabled
+    private final Cache<CartKey, List<ApplicableCoupon>> cache;
+    private final AtomicLong catalogVersion = new AtomicLong(Long.MIN_VALUE);
+
+    public ApplicableCouponsCache(CouponProperties properties, CouponMetrics metrics) {
+        CouponProperties.ResultCache settings = properties.getResultCache();
+        if (!settings.isEnabled()) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaxEntries())
+                .expireAfterWrite(Duration.ofMillis(settings.getTtlMs()))
+                .recordStats()
+                .build();
+        metrics.registerCache(cache, "coupons.applicable");
+        log.info("Applicable-coupons result cache enabled: maxEntries={}, ttlMs={}", settings.getMaxEntries(), settings.getTtlMs());
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * The cached result for this cart against this snapshot, or the result of {@code evaluate}, which is then cached.
+     */
+    public List<ApplicableCoupon> get(CatalogSnapshot snapshot, CartView cart, Supplier<List<ApplicableCoupon>> evaluate) {
+        // A snapshot hiding expired coupons shares its version with entries computed before they expired
+        if (cache == null || snapshot.hidesExpired()) {
+            return evaluate.get();
+        }
+        long version = snapshot.version();
+        long seen = catalogVersion.get();
+        // Versions only grow; a request still holding an older snapshot must not flush newer entries
+        if (version > seen && catalogVersion.compareAndSet(seen, version)) {
+            cache.invalidateAll();
+        }
+        return cache.get(CartKey.of(version, cart), key -> List.copyOf(evaluate.get()));
+    }
+
+    static final class CartKey {
+
+        private final long version;
+        private final long totalPrice;
+        // productId, quantity, price for each line, in cart order
+        private final long[] lines;
+        private final int hash;
+
+        private CartKey(long version, long totalPrice, long[] lines) {
+            this.version = version;
+            this.totalPrice = totalPrice;
+            this.lines = lines;
+            this.hash = 31 * (31 * Long.hashCode(version) + Long.hashCode(totalPrice)) + Arrays.hashCode(lines);
+        }
+
+        static CartKey of(long version, CartView cart) {
+            long[] lines = new long[cart.size() * 3];
+            for (int i = 0, j = 0; i < cart.size(); i++) {
+                lines[j++] = cart.productId(i);
+                lines[j++] = cart.quantity(i);
+                lines[j++] = cart.price(i);
+            }
+            return new CartKey(version, cart.totalPrice(), lines);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CartKey other && hash == other.hash && version == other.version
+                    && totalPrice == other.totalPrice && Arrays.equals(lines, other.lines);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
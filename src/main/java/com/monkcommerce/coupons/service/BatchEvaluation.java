@@ -0,0 +1,14 @@
+package com.monkcommerce.coupons.service;
+
+import java.io.IOException;
+
+/**
+ * A batch that passed validation and is evaluated once its results can be written out.
+ */
+@FunctionalInterface
+public interface BatchEvaluation {
+    /**
+     * Sends every cart's applicable coupons to the sink in cart order; returns the catalog version used.
+     */
+    long evaluate(BatchResultSink sink) throws IOException;
+}
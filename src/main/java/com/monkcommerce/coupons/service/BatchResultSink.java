@@ -0,0 +1,14 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.model.ApplicableCoupon;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives batch results in cart order as soon as they are ready, so callers can stream them out.
+ */
+@FunctionalInterface
+public interface BatchResultSink {
+    void accept(int cartIndex, List<ApplicableCoupon> applicableCoupons) throws IOException;
+}
@@ -0,0 +1,419 @@
+package com.monkcommerce.coupons.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.monkcommerce.coupons.catalog.CatalogSnapshot;
+import com.monkcommerce.coupons.catalog.CompiledCoupon;
+import com.monkcommerce.coupons.catalog.CouponCatalog;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.exception.ResourceNotFoundException;
+import com.monkcommerce.coupons.model.ApplicableCoupon;
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartItem;
+import com.monkcommerce.coupons.model.CartItemDelta;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.rule.BxGyRule;
+import com.monkcommerce.coupons.rule.CartWiseRule;
+import com.monkcommerce.coupons.rule.CouponRule;
+import com.monkcommerce.coupons.rule.ProductWiseRule;
+import com.monkcommerce.coupons.strategy.BxGyStrategy;
+import com.monkcommerce.coupons.strategy.CartWiseStrategy;
+import com.monkcommerce.coupons.strategy.ProductWiseStrategy;
+import com.monkcommerce.coupons.utils.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applicable coupons for carts that change a few items at a time.
+ *
+ * A session keeps the cart and the applicable coupons found for it, keyed by catalog position. An item
+ * delta re-evaluates only the coupons it can affect: coupons whose rule requires or discounts the changed
+ * product (a BxGy "get" product counts), cart-wide coupons when the running total moved, and coupons
+ * without an index key. Every other result is kept as is. If the catalog snapshot changed since
+ * the last call the session is evaluated from scratch. Results equal a full {@code /applicable-coupons}
+ * call on the same cart.
+ *
+ * Re-evaluation works from state the session keeps up to date as deltas arrive, not from a fresh
+ * {@link CartView}: the running total (cart-wise), per-product quantities and subtotals (product-wise), and
+ * for each BxGy coupon with a buy product in the cart its completed buy sets and how many of its buy and
+ * get products are present. Only a BxGy coupon that earned free units walks lines, and only its get
+ * products' lines. Coupons of other strategies are evaluated against a view built once per update.
+ *
+ * Sessions live in a Caffeine cache bounded by {@code coupons.session.max-sessions}, so opening one at
+ * capacity evicts another without a scan, and are dropped after {@code coupons.session.idle-timeout-ms}
+ * without use.
+ */
+@Service
+public class CartSessionService {
+
+    private final CouponCatalog couponCatalog;
+    private final CouponEvaluator couponEvaluator;
+    private final Cache<String, CartSession> sessions;
+
+    @Autowired
+    public CartSessionService(CouponCatalog couponCatalog, CouponEvaluator couponEvaluator,
+                              CouponProperties couponProperties) {
+        this(couponCatalog, couponEvaluator, couponProperties, Clock.systemDefaultZone());
+    }
+
+    public CartSessionService(CouponCatalog couponCatalog, CouponEvaluator couponEvaluator,
+                              CouponProperties couponProperties, Clock clock) {
+        this.couponCatalog = couponCatalog;
+        this.couponEvaluator = couponEvaluator;
+        CouponProperties.Session properties = couponProperties.getSession();
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSessions())
+                .expireAfterAccess(Duration.ofMillis(properties.getIdleTimeoutMs()))
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                // Evictions happen on the calling thread, keeping the bound exact
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * Starts (or restarts) the session for this cart id with a full evaluation.
+     */
+    public List<ApplicableCoupon> open(String cartId, Cart cart) {
+        CartSession session = new CartSession(cart.copy());
+        synchronized (session) {
+            sessions.put(cartId, session);
+            session.evaluateAll(couponCatalog.snapshot());
+            return session.results();
+        }
+    }
+
+    /**
+     * Applies item deltas to the session's cart and returns its applicable coupons.
+     */
+    public List<ApplicableCoupon> update(String cartId, List<CartItemDelta> deltas) {
+        CartSession session = sessions.getIfPresent(cartId);
+        if (session == null) {
+            throw new ResourceNotFoundException("No cart session with id : " + cartId);
+        }
+        synchronized (session) {
+            CatalogSnapshot snapshot = couponCatalog.snapshot();
+            boolean stale = snapshot != session.snapshot;
+            long previousTotal = session.total;
+            TreeSet<Integer> affected = new TreeSet<>();
+            boolean changed = false;
+            for (CartItemDelta delta : deltas) {
+                if (delta.productId() == null || delta.quantity() == 0) {
+                    continue;
+                }
+                ProductChange change = session.apply(delta);
+                if (change != null) {
+                    changed = true;
+                    if (!stale) {
+                        session.track(change, affected);
+                    }
+                }
+            }
+            if (stale) {
+                session.evaluateAll(snapshot);
+            } else if (changed) {
+                session.evaluateAffected(affected, previousTotal != session.total);
+            }
+            return session.results();
+        }
+    }
+
+    public void close(String cartId) {
+        sessions.invalidate(cartId);
+    }
+
+    long size() {
+        sessions.cleanUp();
+        return sessions.estimatedSize();
+    }
+
+    // Expired sessions are already invisible; this releases their memory
+    @Scheduled(fixedDelayString = "${coupons.session.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        sessions.cleanUp();
+    }
+
+    // Built-in rules are evaluated from session state; anything else (plugins, replaced strategies) from a view
+    private static boolean incremental(CompiledCoupon coupon) {
+        CouponRule rule = coupon.rule();
+        Class<?> strategy = coupon.strategy().getClass();
+        return rule instanceof CartWiseRule && strategy == CartWiseStrategy.class
+                || rule instanceof ProductWiseRule && strategy == ProductWiseStrategy.class
+                || rule instanceof BxGyRule && strategy == BxGyStrategy.class;
+    }
+
+    // One product's quantity before and after a delta, and whether the cart held a line of it
+    private record ProductChange(long productId, int before, int after, boolean wasPresent, boolean present) {
+    }
+
+    // A cart line with its unit price in minor units and its rank in cart order
+    private record Line(CartItem item, long price, long rank) {
+    }
+
+    // The lines of one product in cart order, and their total quantity and subtotal in minor units
+    private static final class ProductLines {
+        private final List<Line> lines = new ArrayList<>(1);
+        private int quantity;
+        private long subtotal;
+    }
+
+    // Partial state of one BxGy coupon, kept while at least one of its buy products is in the cart
+    private static final class BxGyState {
+        private int sets;
+        private int buysPresent;
+        private int getsPresent;
+
+        static BxGyState of(BxGyRule rule, Map<Long, ProductLines> products) {
+            BxGyState state = new BxGyState();
+            for (int b = 0; b < rule.buyIds().length; b++) {
+                ProductLines product = products.get(rule.buyIds()[b]);
+                if (product != null) {
+                    state.sets += product.quantity / rule.buyQty()[b];
+                }
+            }
+            long[] buys = rule.sortedBuyIds();
+            for (int i = 0; i < buys.length; i++) {
+                if ((i == 0 || buys[i] != buys[i - 1]) && products.containsKey(buys[i])) {
+                    state.buysPresent++;
+                }
+            }
+            for (long id : rule.sortedGetIds()) {
+                if (products.containsKey(id)) {
+                    state.getsPresent++;
+                }
+            }
+            return state;
+        }
+
+        void apply(BxGyRule rule, ProductChange change) {
+            int presence = (change.present() ? 1 : 0) - (change.wasPresent() ? 1 : 0);
+            if (rule.buys(change.productId())) {
+                sets += rule.setsFor(change.productId(), change.after()) - rule.setsFor(change.productId(), change.before());
+                buysPresent += presence;
+            }
+            if (rule.rewards(change.productId())) {
+                getsPresent += presence;
+            }
+        }
+    }
+
+    /**
+     * One cart, its incremental state and its applicable coupons by catalog position; guarded by its own monitor.
+     */
+    private final class CartSession {
+
+        private final Cart cart;
+        private final Map<Long, ProductLines> products = new HashMap<>();
+        // Cart total in minor units, adjusted by every delta so it cannot drift
+        private long total;
+        private long nextRank;
+        private final TreeMap<Integer, ApplicableCoupon> applicable = new TreeMap<>();
+        private final Map<Integer, BxGyState> bxgy = new HashMap<>();
+        private CatalogSnapshot snapshot;
+        // Built on demand for coupons the session cannot evaluate from its own state; reset by every change
+        private CartView view;
+
+        CartSession(Cart cart) {
+            this.cart = cart;
+            if (cart.getItems() == null) {
+                cart.setItems(new ArrayList<>());
+            }
+            for (CartItem item : cart.getItems()) {
+                if (item != null && item.getProductId() != null) {
+                    addLine(item);
+                }
+            }
+            this.total = Money.toMinor(cart.getTotalPrice());
+        }
+
+        void evaluateAll(CatalogSnapshot current) {
+            snapshot = current;
+            applicable.clear();
+            bxgy.clear();
+            view = CartView.of(cart);
+            for (int position : current.candidatePositions(view)) {
+                CompiledCoupon coupon = current.entry(position);
+                if (coupon.rule() instanceof BxGyRule rule && incremental(coupon)) {
+                    BxGyState state = BxGyState.of(rule, products);
+                    if (state.buysPresent > 0) {
+                        bxgy.put(position, state);
+                    }
+                }
+                evaluate(position);
+            }
+        }
+
+        // Brings the BxGy state of every coupon keyed by the changed product up to date, and marks them affected
+        void track(ProductChange change, TreeSet<Integer> affected) {
+            snapshot.forEachProductPosition(change.productId(), position -> {
+                affected.add(position);
+                CompiledCoupon coupon = snapshot.entry(position);
+                if (!(coupon.rule() instanceof BxGyRule rule) || !incremental(coupon)) {
+                    return;
+                }
+                BxGyState state = bxgy.get(position);
+                if (state == null) {
+                    // No buy product was in the cart; only a buy product arriving can start one
+                    if (rule.buys(change.productId()) && change.present()) {
+                        bxgy.put(position, BxGyState.of(rule, products));
+                    }
+                    return;
+                }
+                state.apply(rule, change);
+                if (state.buysPresent == 0) {
+                    bxgy.remove(position);
+                }
+            });
+        }
+
+        void evaluateAffected(TreeSet<Integer> affected, boolean totalChanged) {
+            if (totalChanged) {
+                // Cart-wide coupons that qualify now, plus those that did before and may have dropped out
+                snapshot.forEachCartWidePosition(total, affected::add);
+                for (Integer position : applicable.keySet()) {
+                    CouponRule rule = snapshot.entry(position).rule();
+                    if (rule != null && rule.productIds().length == 0) {
+                        affected.add(position);
+                    }
+                }
+            }
+            snapshot.forEachUnindexedPosition(affected::add);
+            for (int position : affected) {
+                evaluate(position);
+            }
+        }
+
+        private void evaluate(int position) {
+            CompiledCoupon coupon = snapshot.entry(position);
+            ApplicableCoupon result = incremental(coupon) ? evaluateFromState(position, coupon) : couponEvaluator.evaluate(coupon, view());
+            if (result == null) {
+                applicable.remove(position);
+            } else {
+                applicable.put(position, result);
+            }
+        }
+
+        // Same outcome as the built-in strategies' isApplicable/computeDiscount, from the session's state
+        private ApplicableCoupon evaluateFromState(int position, CompiledCoupon coupon) {
+            long discount;
+            if (coupon.rule() instanceof CartWiseRule rule) {
+                if (total <= rule.threshold()) {
+                    return null;
+                }
+                discount = Money.percentOf(total, rule.discountBps());
+            } else if (coupon.rule() instanceof ProductWiseRule rule) {
+                ProductLines product = products.get(rule.productId());
+                if (product == null) {
+                    return null;
+                }
+                discount = Money.percentOf(product.subtotal, rule.discountBps());
+            } else {
+                BxGyRule rule = (BxGyRule) coupon.rule();
+                BxGyState state = bxgy.get(position);
+                if (state == null || state.getsPresent == 0) {
+                    return null;
+                }
+                int freeItems = BxGyStrategy.freeItems(rule, state.sets);
+                discount = freeItems == 0 ? 0 : BxGyStrategy.rewardValue(rewardLines(rule), rule, freeItems);
+            }
+            return new ApplicableCoupon(coupon.id(), coupon.type(), Money.toMajor(discount));
+        }
+
+        // The lines of the rule's get products, in cart order
+        private CartView rewardLines(BxGyRule rule) {
+            List<Line> lines = new ArrayList<>();
+            for (long id : rule.sortedGetIds()) {
+                ProductLines product = products.get(id);
+                if (product != null) {
+                    lines.addAll(product.lines);
+                }
+            }
+            lines.sort(Comparator.comparingLong(Line::rank));
+            List<CartItem> items = new ArrayList<>(lines.size());
+            for (Line line : lines) {
+                items.add(line.item());
+            }
+            Cart rewarded = new Cart();
+            rewarded.setItems(items);
+            return CartView.of(rewarded);
+        }
+
+        private CartView view() {
+            if (view == null) {
+                view = CartView.of(cart);
+            }
+            return view;
+        }
+
+        private ProductLines addLine(CartItem item) {
+            ProductLines product = products.computeIfAbsent(item.getProductId(), id -> new ProductLines());
+            long price = Money.toMinor(item.getPrice());
+            product.lines.add(new Line(item, price, nextRank++));
+            product.quantity += item.getQuantity();
+            product.subtotal = Math.addExact(product.subtotal, Money.times(price, item.getQuantity()));
+            return product;
+        }
+
+        // Adds to the first line of the product, or appends a new line. A removal takes units from the
+        // product's lines in cart order, at most all of them; lines reaching zero are removed
+        ProductChange apply(CartItemDelta delta) {
+            long productId = delta.productId();
+            int quantity = delta.quantity();
+            ProductLines product = products.get(productId);
+            boolean wasPresent = product != null;
+            int before = wasPresent ? product.quantity : 0;
+            if (product == null) {
+                if (quantity < 0) {
+                    return null;
+                }
+                CartItem item = new CartItem(productId, 0, delta.price(), 0.0);
+                cart.getItems().add(item);
+                product = addLine(item);
+            }
+            if (quantity >= 0) {
+                adjust(product, product.lines.get(0), quantity);
+            } else {
+                int remaining = Math.min(-quantity, product.quantity);
+                while (remaining > 0) {
+                    Line line = product.lines.get(0);
+                    int taken = Math.min(remaining, line.item().getQuantity());
+                    adjust(product, line, -taken);
+                    remaining -= taken;
+                }
+            }
+            if (product.lines.isEmpty()) {
+                products.remove(productId);
+            }
+            cart.setTotalPrice(Money.toMajor(total));
+            view = null;
+            return new ProductChange(productId, before, product.quantity, wasPresent, products.containsKey(productId));
+        }
+
+        private void adjust(ProductLines product, Line line, int quantity) {
+            line.item().setQuantity(line.item().getQuantity() + quantity);
+            long amount = Money.times(line.price(), quantity);
+            product.quantity += quantity;
+            product.subtotal = Math.addExact(product.subtotal, amount);
+            total += amount;
+            if (line.item().getQuantity() == 0) {
+                cart.getItems().remove(line.item());
+                product.lines.remove(line);
+            }
+        }
+
+        List<ApplicableCoupon> results() {
+            return new ArrayList<>(applicable.values());
+        }
+    }
+}
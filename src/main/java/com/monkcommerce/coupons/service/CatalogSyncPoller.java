@@ -0,0 +1,143 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.catalog.CouponCatalog;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponChange;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps this instance's catalog in step with coupons written by other instances sharing the database
+ * ({@code coupons.sync.enabled}).
+ *
+ * Each poll reads the change-log head, an index lookup. When it moved, only the entries since the last
+ * seen sequence number are fetched and only those coupons are re-read into the catalog. Sequence numbers
+ * become visible in commit order, not number order, so a missing number is kept pending and looked up again
+ * on later polls; after {@code coupons.sync.gap-grace-ms} it is taken as a rolled-back write and dropped.
+ * A head that went backwards, more than {@code coupons.sync.max-changes-per-poll} entries or pending
+ * numbers, or a poll that comes more than {@code coupons.sync.retention-ms} after the previous one (entries
+ * may have been pruned unseen) triggers a full reload instead.
+ */
+@Component
+public class CatalogSyncPoller {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSyncPoller.class);
+
+    private final CouponChangeLog couponChangeLog;
+    private final CouponCatalog couponCatalog;
+    private final CouponProperties.Sync settings;
+    private final CouponMetrics metrics;
+    private final EntityManagerFactory entityManagerFactory;
+
+    // Highest sequence number fetched; -1 until the first poll takes a baseline
+    private long seen = -1;
+    // Missing numbers at or below seen, with the time they were first found missing
+    private final Map<Long, Long> pending = new HashMap<>();
+    private long lastPoll;
+
+    public CatalogSyncPoller(CouponChangeLog couponChangeLog, CouponCatalog couponCatalog, CouponProperties properties,
+                             CouponMetrics metrics, EntityManagerFactory entityManagerFactory) {
+        this.couponChangeLog = couponChangeLog;
+        this.couponCatalog = couponCatalog;
+        this.settings = properties.getSync();
+        this.metrics = metrics;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    // The first poll waits one interval: at startup the catalog is loaded on first read anyway
+    @Scheduled(fixedDelayString = "${coupons.sync.poll-interval-ms:1000}", initialDelayString = "${coupons.sync.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long sincePrevious = now - lastPoll;
+        lastPoll = now;
+        long head = couponChangeLog.lastSeq();
+        if (head == seen && pending.isEmpty()) {
+            return;
+        }
+        if (seen < 0 || head < seen || head - seen > settings.getMaxChangesPerPoll()
+                || sincePrevious > settings.getRetentionMs() * 1_000_000) {
+            resync(head, now);
+            return;
+        }
+
+        List<CouponChange> changes = new ArrayList<>();
+        if (!pending.isEmpty()) {
+            for (CouponChange change : couponChangeLog.changes(new ArrayList<>(pending.keySet()))) {
+                pending.remove(change.getSeq());
+                changes.add(change);
+            }
+            long grace = settings.getGapGraceMs() * 1_000_000;
+            if (pending.values().removeIf(missedAt -> now - missedAt >= grace)) {
+                log.debug("Dropped coupon change-log gaps older than {} ms as rolled back", settings.getGapGraceMs());
+            }
+        }
+        if (head > seen) {
+            List<CouponChange> fresh = couponChangeLog.changes(seen, head);
+            markGaps(seen, head, fresh.stream().map(CouponChange::getSeq).toList(), now);
+            changes.addAll(fresh);
+            seen = head;
+        }
+        if (pending.size() > settings.getMaxChangesPerPoll()) {
+            log.warn("{} coupon change-log gaps pending, reloading the catalog", pending.size());
+            resync(head, now);
+            return;
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        Set<Long> ids = new LinkedHashSet<>();
+        for (CouponChange change : changes) {
+            ids.add(change.getCouponId());
+        }
+        // This instance's second-level cache may still hold the old rows
+        for (Long id : ids) {
+            entityManagerFactory.getCache().evict(Coupon.class, id);
+        }
+        couponCatalog.refresh(ids);
+        metrics.recordCatalogSync(changes.size());
+    }
+
+    // The head is read before reloading, so the reload holds every change committed up to it and later ones are
+    // applied on top. Numbers below the head that are still uncommitted are looked for in the last
+    // max-changes-per-poll entries and kept pending like any other gap.
+    private void resync(long head, long now) {
+        log.debug("Reloading the catalog at change {}", head);
+        entityManagerFactory.getCache().evict(Coupon.class);
+        couponCatalog.invalidate();
+        metrics.recordCatalogResync();
+        pending.clear();
+        long from = Math.max(0, head - settings.getMaxChangesPerPoll());
+        markGaps(from, head, couponChangeLog.seqs(from, head), now);
+        seen = head;
+    }
+
+    // Records every number in (after, upTo] missing from the ascending present list
+    private void markGaps(long after, long upTo, List<Long> present, long now) {
+        long expected = after + 1;
+        for (long seq : present) {
+            for (long missing = expected; missing < seq; missing++) {
+                pending.putIfAbsent(missing, now);
+            }
+            expected = seq + 1;
+        }
+        for (long missing = expected; missing <= upTo; missing++) {
+            pending.putIfAbsent(missing, now);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponChange;
+import com.monkcommerce.coupons.repository.CouponChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the {@code coupon_changes} log that lets every instance sharing the database follow coupon
+ * writes without re-reading the whole table. Callers record a coupon in the same transaction that saves it;
+ * nothing is written unless {@code coupons.sync.enabled} is set.
+ *
+ * Sequence numbers come from the {@code coupon_changes_seq} database sequence, so writers on different
+ * instances never serialize on the log. A number is visible only once its transaction commits, which may
+ * be after a higher one; {@link CatalogSyncPoller} waits for such gaps. Entries older than
+ * {@code coupons.sync.retention-ms} are pruned; an instance further behind reloads in full.
+ */
+@Component
+public class CouponChangeLog {
+
+    private static final Logger log = LoggerFactory.getLogger(CouponChangeLog.class);
+
+    private final CouponChangeRepository couponChangeRepository;
+    private final CouponProperties.Sync settings;
+
+    public CouponChangeLog(CouponChangeRepository couponChangeRepository, CouponProperties properties) {
+        this.couponChangeRepository = couponChangeRepository;
+        this.settings = properties.getSync();
+    }
+
+    /**
+     * Appends one entry per already-saved coupon. Must run inside the transaction that wrote them.
+     */
+    public void record(List<Coupon> coupons) {
+        if (!settings.isEnabled() || coupons.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<CouponChange> entries = new ArrayList<>(coupons.size());
+        for (Coupon coupon : coupons) {
+            entries.add(new CouponChange(coupon.getId(), now));
+        }
+        couponChangeRepository.saveAll(entries);
+    }
+
+    /**
+     * Highest committed sequence number, 0 before the first write.
+     */
+    public long lastSeq() {
+        Long last = couponChangeRepository.lastSeq();
+        return last == null ? 0 : last;
+    }
+
+    /**
+     * Committed entries after {@code after} up to and including {@code upTo}, oldest first.
+     */
+    public List<CouponChange> changes(long after, long upTo) {
+        return couponChangeRepository.findRange(after, upTo);
+    }
+
+    /**
+     * Committed sequence numbers after {@code after} up to and including {@code upTo}, ascending.
+     */
+    public List<Long> seqs(long after, long upTo) {
+        return couponChangeRepository.findSeqRange(after, upTo);
+    }
+
+    /**
+     * Committed entries among the given sequence numbers.
+     */
+    public List<CouponChange> changes(Iterable<Long> seqs) {
+        return couponChangeRepository.findAllById(seqs);
+    }
+
+    @Scheduled(fixedDelayString = "${coupons.sync.prune-interval-ms:60000}")
+    public void prune() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(settings.getRetentionMs() * 1_000_000);
+        int deleted = couponChangeRepository.deleteOlderThan(cutoff, lastSeq());
+        if (deleted > 0) {
+            log.debug("Pruned {} coupon change-log entries", deleted);
+        }
+    }
+}
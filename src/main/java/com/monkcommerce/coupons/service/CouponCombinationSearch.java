@@ -0,0 +1,175 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.model.ApplicableCoupon;
+import com.monkcommerce.coupons.model.BestCombination;
+import com.monkcommerce.coupons.rule.CouponRule;
+import com.monkcommerce.coupons.utils.Money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Branch-and-bound search for the highest-discount set of mutually stackable coupons.
+ *
+ * Coupons are explored in descending discount order; a branch is pruned as soon as its
+ * discount plus every remaining coupon's discount cannot beat the best set found so far.
+ * The search is seeded with a greedy pick and stops at the node or time budget, returning
+ * the best-so-far marked as non-exhaustive. Only the {@code maxCandidates} highest discounts
+ * take part, which bounds both the pairwise conflict matrix and the recursion depth; the
+ * deadline is also checked while that matrix is built. Instances are single-use.
+ */
+public final class CouponCombinationSearch {
+
+    // Check the clock only every this many nodes
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    private final long maxNodes;
+    private final int maxCandidates;
+    private final long deadline;
+
+    private ApplicableCoupon[] coupons;
+    private long[] discounts;
+    private long[] suffix;
+    private BitSet[] conflicts;
+    private long cap;
+
+    private long nodes;
+    // Set once the node or time budget runs out; ends the search
+    private boolean stopped;
+    // Set when the result is not provably optimal: stopped early or candidates left out
+    private boolean exhausted;
+    private long best;
+    private BitSet bestSet;
+
+    public CouponCombinationSearch(long maxNodes, int maxCandidates, long timeBudgetMs) {
+        this.maxNodes = maxNodes;
+        this.maxCandidates = maxCandidates;
+        this.deadline = System.nanoTime() + timeBudgetMs * 1_000_000;
+    }
+
+    /**
+     * @param applicable applicable coupons with their standalone dry-run discounts
+     * @param rules      compiled rule of each coupon, aligned with {@code applicable}; {@code null} never stacks
+     * @param cartTotal  upper bound on any combined discount, in minor units
+     */
+    public BestCombination search(List<ApplicableCoupon> applicable, List<CouponRule> rules, long cartTotal) {
+        Integer[] order = new Integer[applicable.size()];
+        int k = 0;
+        for (int i = 0; i < applicable.size(); i++) {
+            if (applicable.get(i).discount() > 0) {
+                order[k++] = i;
+            }
+        }
+        order = Arrays.copyOf(order, k);
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -applicable.get(i).discount()).thenComparingInt(i -> i));
+        if (k > maxCandidates) {
+            // The smallest discounts are left out, so the answer is no longer provably optimal
+            k = maxCandidates;
+            exhausted = true;
+        }
+
+        coupons = new ApplicableCoupon[k];
+        discounts = new long[k];
+        long[][] claimed = new long[k][];
+        for (int i = 0; i < k; i++) {
+            coupons[i] = applicable.get(order[i]);
+            discounts[i] = Money.toMinor(coupons[i].discount());
+            CouponRule rule = rules.get(order[i]);
+            claimed[i] = rule == null ? null : rule.claimedProductIds();
+        }
+        conflicts = new BitSet[k];
+        for (int i = 0; i < k; i++) {
+            conflicts[i] = new BitSet(k);
+        }
+        for (int i = 0; i < k; i++) {
+            // Rows before i are complete, so on timeout the search continues over those coupons only
+            if (System.nanoTime() > deadline) {
+                k = i;
+                exhausted = true;
+                break;
+            }
+            for (int j = i + 1; j < k; j++) {
+                if (!stackable(claimed[i], claimed[j])) {
+                    conflicts[i].set(j);
+                    conflicts[j].set(i);
+                }
+            }
+        }
+        coupons = Arrays.copyOf(coupons, k);
+        discounts = Arrays.copyOf(discounts, k);
+        suffix = new long[k + 1];
+        for (int i = k - 1; i >= 0; i--) {
+            suffix[i] = suffix[i + 1] + discounts[i];
+        }
+        cap = cartTotal > 0 ? cartTotal : Long.MAX_VALUE;
+
+        seedGreedy();
+        dfs(0, 0, new BitSet(k));
+
+        List<ApplicableCoupon> chosen = new ArrayList<>();
+        for (int i = bestSet.nextSetBit(0); i >= 0; i = bestSet.nextSetBit(i + 1)) {
+            chosen.add(coupons[i]);
+        }
+        return new BestCombination(chosen, Money.toMajor(best), !exhausted);
+    }
+
+    private void seedGreedy() {
+        BitSet chosen = new BitSet(coupons.length);
+        long total = 0;
+        for (int i = 0; i < coupons.length; i++) {
+            if (!conflicts[i].intersects(chosen)) {
+                chosen.set(i);
+                total += discounts[i];
+            }
+        }
+        best = total;
+        bestSet = chosen;
+    }
+
+    // Recursion depth is at most maxCandidates
+    private void dfs(int i, long current, BitSet chosen) {
+        if (stopped || budgetExceeded()) {
+            stopped = true;
+            exhausted = true;
+            return;
+        }
+        if (current > best) {
+            best = current;
+            bestSet = (BitSet) chosen.clone();
+        }
+        if (i == coupons.length || best >= cap || Math.min(current + suffix[i], cap) <= best) {
+            return;
+        }
+        if (!conflicts[i].intersects(chosen)) {
+            chosen.set(i);
+            dfs(i + 1, current + discounts[i], chosen);
+            chosen.clear(i);
+        }
+        dfs(i + 1, current, chosen);
+    }
+
+    private boolean budgetExceeded() {
+        nodes++;
+        if (nodes > maxNodes) {
+            return true;
+        }
+        return nodes % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() > deadline;
+    }
+
+    // Whole-cart discounts (empty ids) and rule-less coupons never stack; others stack when the products they
+    // use up, discounted or only qualifying (BxGy buy products), are disjoint
+    private static boolean stackable(long[] a, long[] b) {
+        if (a == null || b == null || a.length == 0 || b.length == 0) {
+            return false;
+        }
+        for (long x : a) {
+            for (long y : b) {
+                if (x == y) return false;
+            }
+        }
+        return true;
+    }
+}
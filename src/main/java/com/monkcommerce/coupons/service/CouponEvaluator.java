@@ -0,0 +1,178 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.catalog.CatalogSnapshot;
+import com.monkcommerce.coupons.catalog.CompiledCoupon;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
+import com.monkcommerce.coupons.model.ApplicableCoupon;
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.utils.Money;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Dry-run evaluation of candidate coupons against a cart.
+ *
+ * Large candidate sets can optionally be split across a dedicated fork-join pool
+ * ({@code coupons.evaluation.parallel-enabled}), and batches of carts always are. Each
+ * result is written to the slot of its input position, so the parallel paths return
+ * exactly the same lists, in the same order, as the sequential one.
+ */
+@Component
+public class CouponEvaluator {
+
+    private static final Logger log = LoggerFactory.getLogger(CouponEvaluator.class);
+
+    private final CouponProperties.Evaluation settings;
+    private final CouponMetrics metrics;
+    private final int parallelism;
+    // Worker threads are only started on first use, so an idle pool costs nothing
+    private final ForkJoinPool pool;
+
+    public CouponEvaluator(CouponProperties properties, CouponMetrics metrics) {
+        this.settings = properties.getEvaluation();
+        this.metrics = metrics;
+        this.parallelism = settings.getParallelism() > 0 ? settings.getParallelism() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism);
+        if (settings.isParallelEnabled()) {
+            log.info("Parallel coupon evaluation enabled: parallelism={}, threshold={}", parallelism, settings.getParallelThreshold());
+        }
+    }
+
+    /**
+     * Applicable coupons among the candidates with their dry-run discount, in candidate order.
+     * Candidates come from a catalog snapshot, which never holds expired coupons.
+     */
+    public List<ApplicableCoupon> evaluate(List<CompiledCoupon> candidates, CartView cart) {
+        int n = candidates.size();
+        if (!settings.isParallelEnabled() || n < settings.getParallelThreshold()) {
+            return record(cart, n, evaluateSequential(candidates, cart));
+        }
+
+        ApplicableCoupon[] slots = new ApplicableCoupon[n];
+        // Leaves of roughly threshold/4 coupons keep task overhead small next to the evaluation work
+        int leafSize = Math.max(1, settings.getParallelThreshold() / 4);
+        pool.invoke(new IndexRange(0, n, leafSize, i -> slots[i] = evaluate(candidates.get(i), cart)));
+
+        List<ApplicableCoupon> result = new ArrayList<>();
+        for (ApplicableCoupon applicable : slots) {
+            if (applicable != null) {
+                result.add(applicable);
+            }
+        }
+        return record(cart, n, result);
+    }
+
+    /**
+     * Evaluates every cart against the same snapshot, spreading carts over the pool.
+     * Results are handed to the sink in cart order, one window at a time, so only a window's
+     * worth of results is ever held in memory.
+     */
+    public void evaluateBatch(CatalogSnapshot snapshot, List<Cart> carts, BatchResultSink sink) throws IOException {
+        int window = parallelism * 16;
+        // Fixed-size list: workers only set their own index, which is safe without locking
+        List<List<ApplicableCoupon>> slots = new ArrayList<>(Collections.nCopies(Math.min(window, carts.size()), null));
+
+        for (int start = 0; start < carts.size(); start += window) {
+            int base = start;
+            int size = Math.min(window, carts.size() - start);
+            pool.invoke(new IndexRange(0, size, 1, i -> {
+                CartView view = CartView.of(carts.get(base + i));
+                List<CompiledCoupon> candidates = snapshot.candidates(view);
+                slots.set(i, record(view, candidates.size(), evaluateSequential(candidates, view)));
+            }));
+            for (int i = 0; i < size; i++) {
+                sink.accept(base + i, slots.get(i));
+                slots.set(i, null);
+            }
+        }
+    }
+
+    private List<ApplicableCoupon> evaluateSequential(List<CompiledCoupon> candidates, CartView cart) {
+        List<ApplicableCoupon> result = new ArrayList<>();
+        for (CompiledCoupon coupon : candidates) {
+            ApplicableCoupon applicable = evaluate(coupon, cart);
+            if (applicable != null) {
+                result.add(applicable);
+            }
+        }
+        return result;
+    }
+
+    private List<ApplicableCoupon> record(CartView cart, int candidateCount, List<ApplicableCoupon> result) {
+        metrics.recordEvaluation(cart.size(), candidateCount, result.size());
+        return result;
+    }
+
+    // Returns null when the coupon is not applicable to the cart
+    ApplicableCoupon evaluate(CompiledCoupon coupon, CartView cart) {
+        if (metrics.sample()) {
+            return evaluateTimed(coupon, cart);
+        }
+        if (!coupon.isApplicable(cart)) {
+            return null;
+        }
+        long discount = coupon.computeDiscount(cart);
+        if (log.isDebugEnabled()) {
+            log.debug("Coupon {} applicable — dry-run discount={}", coupon.id(), discount);
+        }
+        return new ApplicableCoupon(coupon.id(), coupon.type(), Money.toMajor(discount));
+    }
+
+    private ApplicableCoupon evaluateTimed(CompiledCoupon coupon, CartView cart) {
+        long start = System.nanoTime();
+        boolean applicable = coupon.isApplicable(cart);
+        long checked = System.nanoTime();
+        metrics.recordStrategy(coupon.type(), CouponMetrics.Phase.IS_APPLICABLE, checked - start);
+        if (!applicable) {
+            return null;
+        }
+        long discount = coupon.computeDiscount(cart);
+        metrics.recordStrategy(coupon.type(), CouponMetrics.Phase.COMPUTE_DISCOUNT, System.nanoTime() - checked);
+        return new ApplicableCoupon(coupon.id(), coupon.type(), Money.toMajor(discount));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    // Runs the action for every index in [from, to), splitting in halves down to leafSize
+    private static final class IndexRange extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final IntConsumer action;
+
+        IndexRange(int from, int to, int leafSize, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new IndexRange(from, mid, leafSize, action), new IndexRange(mid, to, leafSize, action));
+        }
+    }
+}
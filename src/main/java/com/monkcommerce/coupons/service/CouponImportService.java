@@ -0,0 +1,194 @@
+package com.monkcommerce.coupons.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommerce.coupons.catalog.CouponCatalog;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.exception.InvalidCouponDetailsException;
+import com.monkcommerce.coupons.exception.InvalidCouponTypeException;
+import com.monkcommerce.coupons.model.BulkImportResult;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import com.monkcommerce.coupons.strategy.StrategyRegistry;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams coupons from a JSON array or newline-delimited JSON body into the database.
+ *
+ * Only one row is materialized at a time while parsing, and valid rows are written in chunks of
+ * {@code coupons.bulk.chunk-size}: each chunk is one transaction and one JDBC batch, after which the
+ * persistence context is cleared. Memory therefore depends on the chunk size, not the upload size.
+ * Rows that do not bind or whose details no strategy accepts are reported and skipped; a chunk the
+ * database rejects fails as a whole. Malformed JSON stops the import, keeping chunks already written.
+ */
+@Service
+public class CouponImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(CouponImportService.class);
+
+    private final CouponRepository couponRepository;
+    private final CouponCatalog couponCatalog;
+    private final CouponProductIndex couponProductIndex;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final CouponProperties.Bulk properties;
+    private final StrategyRegistry strategyRegistry;
+    private final CouponChangeLog couponChangeLog;
+
+    public CouponImportService(CouponRepository couponRepository, CouponCatalog couponCatalog,
+                               CouponProductIndex couponProductIndex, ObjectMapper objectMapper, EntityManager entityManager,
+                               PlatformTransactionManager transactionManager, CouponProperties couponProperties,
+                               StrategyRegistry strategyRegistry, CouponChangeLog couponChangeLog) {
+        this.couponRepository = couponRepository;
+        this.couponCatalog = couponCatalog;
+        this.couponProductIndex = couponProductIndex;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = couponProperties.getBulk();
+        this.strategyRegistry = strategyRegistry;
+        this.couponChangeLog = couponChangeLog;
+    }
+
+    public BulkImportResult importCoupons(InputStream body) throws IOException {
+        Import run = new Import(Math.max(1, properties.getChunkSize()), properties.getMaxErrors());
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            // A top-level array is unwrapped; otherwise the body is a sequence of root values (NDJSON)
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            int row = 0;
+            while (token != null && token != JsonToken.END_ARRAY) {
+                JsonNode node;
+                try {
+                    node = parser.readValueAsTree();
+                } catch (JsonProcessingException e) {
+                    run.error(row, "Malformed JSON, import stopped: " + e.getOriginalMessage());
+                    break;
+                }
+                run.accept(row++, node);
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            // Raised by nextToken() between rows
+            run.error(run.rows, "Malformed JSON, import stopped: " + e.getOriginalMessage());
+        } finally {
+            run.flush();
+            if (run.imported > 0) {
+                couponCatalog.invalidate();
+            }
+        }
+        log.info("Bulk import: {} coupons imported, {} rows failed", run.imported, run.failed);
+        return new BulkImportResult(run.imported, run.failed, run.errors, run.errorsTruncated);
+    }
+
+    // Returns null when the coupon can be stored, otherwise why not
+    private String validate(Coupon coupon) {
+        try {
+            strategyRegistry.validate(coupon);
+        } catch (InvalidCouponTypeException | InvalidCouponDetailsException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private int persist(List<Coupon> chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            couponRepository.saveAll(chunk);
+            couponProductIndex.index(chunk);
+            couponChangeLog.record(chunk);
+            entityManager.flush();
+            // Detach the chunk so a long import does not accumulate managed entities
+            entityManager.clear();
+        });
+        return chunk.size();
+    }
+
+    /**
+     * Running state of one import: the pending chunk with the row number of each entry, and the tallies.
+     */
+    private final class Import {
+
+        private final List<Coupon> chunk;
+        private final int[] chunkRows;
+        private final int maxErrors;
+        private final List<BulkImportResult.RowError> errors = new ArrayList<>();
+        private int rows;
+        private int imported;
+        private int failed;
+        private boolean errorsTruncated;
+
+        Import(int chunkSize, int maxErrors) {
+            this.chunk = new ArrayList<>(chunkSize);
+            this.chunkRows = new int[chunkSize];
+            this.maxErrors = maxErrors;
+        }
+
+        void accept(int row, JsonNode node) {
+            rows = row + 1;
+            Coupon coupon;
+            try {
+                coupon = objectMapper.treeToValue(node, Coupon.class);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                error(row, "Invalid coupon: " + e.getMessage());
+                return;
+            }
+            if (coupon == null) {
+                error(row, "Invalid coupon: null");
+                return;
+            }
+            String problem = validate(coupon);
+            if (problem != null) {
+                error(row, problem);
+                return;
+            }
+            // Imports always create new coupons with no redemption history
+            coupon.setId(null);
+            coupon.setRedemptionCount(0);
+            chunkRows[chunk.size()] = row;
+            chunk.add(coupon);
+            if (chunk.size() == chunkRows.length) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                imported += persist(chunk);
+            } catch (RuntimeException e) {
+                log.warn("Bulk import: chunk of {} rows rejected: {}", chunk.size(), e.getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    error(chunkRows[i], "Rejected by database: " + e.getMessage());
+                }
+            }
+            chunk.clear();
+        }
+
+        void error(int row, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new BulkImportResult.RowError(row, message));
+            } else {
+                errorsTruncated = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Fills {@code coupon_products} for coupons stored before the table existed, so the product filter of
+ * {@code GET /coupons} and the export also finds them. Runs once all beans exist and before the web
+ * server starts, so no request sees a half-filled index.
+ *
+ * Only coupons without any row are read, in keyset pages of {@link #PAGE_SIZE}, each written in its own
+ * transaction; an interrupted run resumes where it stopped on the next start. Cart-wide coupons never get
+ * rows, so they are read again on every start.
+ */
+@Component
+public class CouponProductBackfill implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(CouponProductBackfill.class);
+
+    static final int PAGE_SIZE = 500;
+
+    private final CouponRepository couponRepository;
+    private final CouponProductIndex couponProductIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    public CouponProductBackfill(CouponRepository couponRepository, CouponProductIndex couponProductIndex,
+                                 PlatformTransactionManager transactionManager) {
+        this.couponRepository = couponRepository;
+        this.couponProductIndex = couponProductIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    /**
+     * Indexes every coupon without product rows; returns how many coupons got rows.
+     */
+    public int backfill() {
+        long after = 0;
+        int indexed = 0;
+        while (true) {
+            long cursor = after;
+            List<Coupon> page = couponRepository.findPageWithoutProducts(cursor, Limit.of(PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+            indexed += transactionTemplate.execute(status -> couponProductIndex.index(page));
+            after = page.get(page.size() - 1).getId();
+        }
+        if (indexed > 0) {
+            log.info("Backfilled product rows for {} coupons", indexed);
+        }
+        return indexed;
+    }
+}
@@ -0,0 +1,69 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponProduct;
+import com.monkcommerce.coupons.repository.CouponProductRepository;
+import com.monkcommerce.coupons.rule.CouponRule;
+import com.monkcommerce.coupons.strategy.StrategyRegistry;
+import com.monkcommerce.coupons.strategy.TypedCouponStrategy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maintains the {@code coupon_products} side table: every product a coupon's compiled rule buys or
+ * discounts. Cart-wide coupons and coupons of map-only strategies have no rows.
+ * Callers index a coupon in the same transaction that saves it.
+ */
+@Component
+public class CouponProductIndex {
+
+    private final CouponProductRepository couponProductRepository;
+    private final StrategyRegistry strategyRegistry;
+
+    public CouponProductIndex(CouponProductRepository couponProductRepository, StrategyRegistry strategyRegistry) {
+        this.couponProductRepository = couponProductRepository;
+        this.strategyRegistry = strategyRegistry;
+    }
+
+    /**
+     * Writes the product rows of already-saved coupons; returns how many coupons got at least one row.
+     */
+    public int index(List<Coupon> coupons) {
+        List<CouponProduct> rows = new ArrayList<>();
+        int indexed = 0;
+        for (Coupon coupon : coupons) {
+            Set<Long> productIds = productIds(coupon);
+            for (Long productId : productIds) {
+                rows.add(new CouponProduct(coupon.getId(), productId));
+            }
+            if (!productIds.isEmpty()) {
+                indexed++;
+            }
+        }
+        if (!rows.isEmpty()) {
+            couponProductRepository.saveAll(rows);
+        }
+        return indexed;
+    }
+
+    // Distinct products in rule order; a BxGy coupon may buy and give away the same product
+    Set<Long> productIds(Coupon coupon) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (strategyRegistry.find(coupon.getType()) instanceof TypedCouponStrategy<?> typed) {
+            CouponRule rule = typed.compile(coupon.getDetails());
+            if (rule != null) {
+                for (long id : rule.productIds()) {
+                    ids.add(id);
+                }
+                for (long id : rule.discountedProductIds()) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+}
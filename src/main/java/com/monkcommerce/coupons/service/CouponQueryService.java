@@ -0,0 +1,74 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponFilter;
+import com.monkcommerce.coupons.model.CouponPage;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Listing and export of stored coupons without loading the whole table.
+ *
+ * Pages are keyset-paginated on the id, and exports walk a forward-only cursor, detaching each coupon
+ * once it is written. All filters run in the database; the product filter goes through the indexed
+ * {@code coupon_products} side table.
+ */
+@Service
+public class CouponQueryService {
+
+    private final CouponRepository couponRepository;
+    private final EntityManager entityManager;
+    private final CouponProperties.Listing properties;
+
+    public CouponQueryService(CouponRepository couponRepository, EntityManager entityManager,
+                              CouponProperties couponProperties) {
+        this.couponRepository = couponRepository;
+        this.entityManager = entityManager;
+        this.properties = couponProperties.getListing();
+    }
+
+    @Transactional(readOnly = true)
+    public CouponPage listCoupons(CouponFilter filter, Long after, Integer limit) {
+        int size = limit == null ? properties.getDefaultLimit() : limit;
+        if (size < 1 || size > properties.getMaxLimit()) {
+            throw new IllegalArgumentException("limit must be between 1 and " + properties.getMaxLimit());
+        }
+        long cursor = after == null ? 0L : after;
+        // Fetch one extra row so a full page can tell whether anything follows it
+        Limit fetch = Limit.of(size + 1);
+        List<Coupon> rows = filter.productId() == null
+                ? couponRepository.findPage(cursor, filter.type(), filter.active(), filter.expiringBefore(), fetch)
+                : couponRepository.findPageByProduct(cursor, filter.productId(), filter.type(), filter.active(),
+                        filter.expiringBefore(), fetch);
+        if (rows.size() <= size) {
+            return new CouponPage(rows, null);
+        }
+        List<Coupon> page = rows.subList(0, size);
+        return new CouponPage(page, page.get(size - 1).getId());
+    }
+
+    @Transactional(readOnly = true)
+    public void exportCoupons(CouponFilter filter, CouponSink sink) throws IOException {
+        try (Stream<Coupon> coupons = filter.productId() == null
+                ? couponRepository.streamAll(filter.type(), filter.active(), filter.expiringBefore())
+                : couponRepository.streamAllByProduct(filter.productId(), filter.type(), filter.active(),
+                        filter.expiringBefore())) {
+            Iterator<Coupon> it = coupons.iterator();
+            while (it.hasNext()) {
+                Coupon coupon = it.next();
+                sink.accept(coupon);
+                // Written coupons are never read again; keep the persistence context empty
+                entityManager.detach(coupon);
+            }
+        }
+    }
+}
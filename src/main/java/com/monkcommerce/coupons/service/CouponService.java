@@ -1,17 +1,28 @@
 package com.monkcommerce.coupons.service;
 
+import com.monkcommerce.coupons.catalog.CatalogSnapshot;
+import com.monkcommerce.coupons.catalog.CompiledCoupon;
+import com.monkcommerce.coupons.catalog.CouponCatalog;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.exception.BatchTooLargeException;
 import com.monkcommerce.coupons.exception.ResourceNotFoundException;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
+import com.monkcommerce.coupons.model.ApplicableCoupon;
+import com.monkcommerce.coupons.model.BestCombination;
 import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartView;
 import com.monkcommerce.coupons.model.Coupon;
 import com.monkcommerce.coupons.repository.CouponRepository;
+import com.monkcommerce.coupons.rule.CouponRule;
 import com.monkcommerce.coupons.strategy.CouponStrategy;
+import com.monkcommerce.coupons.strategy.StrategyRegistry;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,27 +32,42 @@ public class CouponService {
     private static final Logger log = LoggerFactory.getLogger(CouponService.class);
 
     private final CouponRepository couponRepository;
-    private final Map<String, CouponStrategy> strategyMap = new HashMap<>();
-
-    // Spring automatically gives us all classes that implement CouponStrategy
-    public CouponService(CouponRepository couponRepository, List<CouponStrategy> strategies) {
+    private final CouponCatalog couponCatalog;
+    private final CouponEvaluator couponEvaluator;
+    private final CouponProperties couponProperties;
+    private final CouponMetrics couponMetrics;
+    private final RedemptionTracker redemptionTracker;
+    private final CouponProductIndex couponProductIndex;
+    private final StrategyRegistry strategyRegistry;
+    private final ApplicableCouponsCache applicableCouponsCache;
+    private final CouponChangeLog couponChangeLog;
+
+    public CouponService(CouponRepository couponRepository, CouponCatalog couponCatalog,
+                         CouponEvaluator couponEvaluator, CouponProperties couponProperties,
+                         CouponMetrics couponMetrics, RedemptionTracker redemptionTracker,
+                         CouponProductIndex couponProductIndex, StrategyRegistry strategyRegistry,
+                         ApplicableCouponsCache applicableCouponsCache, CouponChangeLog couponChangeLog) {
         this.couponRepository = couponRepository;
-
-        // Map each strategy by its declared type (e.g. strategy.getType() -> strategy)
-        for (CouponStrategy strategy : strategies) {
-            try {
-                String type = strategy.getType();
-                if (type != null) {
-                    strategyMap.put(type, strategy);
-                }
-            } catch (Exception e) {
-                log.warn("Skipping strategy during registration due to error: {}", e.getMessage());
-            }
-        }
+        this.couponCatalog = couponCatalog;
+        this.couponEvaluator = couponEvaluator;
+        this.couponProperties = couponProperties;
+        this.couponMetrics = couponMetrics;
+        this.redemptionTracker = redemptionTracker;
+        this.couponProductIndex = couponProductIndex;
+        this.strategyRegistry = strategyRegistry;
+        this.applicableCouponsCache = applicableCouponsCache;
+        this.couponChangeLog = couponChangeLog;
     }
 
+    @Transactional
     public Coupon createCoupon(Coupon coupon) {
-        return couponRepository.save(coupon);
+        // Unknown types, details the strategy cannot compile and negative limits are rejected here rather than at apply time
+        strategyRegistry.validate(coupon);
+        Coupon saved = couponRepository.save(coupon);
+        couponProductIndex.index(List.of(saved));
+        couponChangeLog.record(List.of(saved));
+        couponCatalog.add(saved);
+        return saved;
     }
 
     public Coupon getCoupon(Long id) throws ResourceNotFoundException {
@@ -54,36 +80,134 @@ public class CouponService {
     }
 
     public Map<String, Object> getApplicableCoupons(Cart cart) {
-        List<Map<String, Object>> applicableCoupons = new ArrayList<>();
-        List<Coupon> allCoupons = couponRepository.findAll();
-
-        for (Coupon coupon : allCoupons) {
-            // Skip inactive or expired coupons
-            if (!coupon.isActive() || (coupon.getExpirationDate() != null && coupon.getExpirationDate().isBefore(LocalDateTime.now()))) {
-                log.debug("Skipping coupon {} because it is inactive or expired", coupon.getId());
-                continue;
-            }
-
-            CouponStrategy strategy = strategyMap.get(coupon.getType());
-            if (strategy != null && strategy.isApplicable(cart, coupon.getDetails())) {
+        // One read-only view per request; coupons are evaluated as pure dry-runs against it
+        CartView view = CartView.of(cart);
+
+        // Served from the in-memory catalog, which only holds active, unexpired coupons,
+        // and the index only hands back coupons keyed by a product in the cart or a threshold below its total.
+        // An identical cart against the same snapshot is answered from the result cache when it is enabled.
+        CatalogSnapshot snapshot = couponCatalog.snapshot();
+        List<ApplicableCoupon> applicableCoupons = applicableCouponsCache.get(snapshot, view,
+                () -> couponEvaluator.evaluate(snapshot.candidates(view), view));
+
+        // The version lets clients tell which catalog state the answer reflects
+        return Map.of("applicable_coupons", applicableCoupons, "catalog_version", snapshot.version());
+    }
 
-                // Use Cart.copy() to perform a dry-run without mutating the original
-                Cart tempCart = cart.copy();
-                strategy.applyDiscount(tempCart, coupon.getDetails());
-                log.debug("Coupon {} applicable — dry-run discount={}", coupon.getId(), tempCart.getTotalDiscount());
+    /**
+     * The single applicable coupon with the highest dry-run discount, or {@code null} if none applies.
+     * Ties go to the coupon listed first by {@link #getApplicableCoupons(Cart)}.
+     */
+    public ApplicableCoupon getBestCoupon(Cart cart) {
+        CartView view = CartView.of(cart);
+        List<CompiledCoupon> candidates = couponCatalog.snapshot().candidates(view);
+        ApplicableCoupon best = null;
+        for (ApplicableCoupon applicable : couponEvaluator.evaluate(candidates, view)) {
+            if (best == null || applicable.discount() > best.discount()) {
+                best = applicable;
+            }
+        }
+        return best;
+    }
 
-                Map<String, Object> result = new HashMap<>();
-                result.put("coupon_id", coupon.getId());
-                result.put("type", coupon.getType());
-                result.put("discount", tempCart.getTotalDiscount());
-                applicableCoupons.add(result);
+    /**
+     * The highest-discount set of coupons that can be stacked on this cart, found by a
+     * budgeted branch-and-bound search over the applicable coupons.
+     */
+    public BestCombination getBestCombination(Cart cart) {
+        CartView view = CartView.of(cart);
+        List<CompiledCoupon> candidates = couponCatalog.snapshot().candidates(view);
+        List<ApplicableCoupon> applicable = couponEvaluator.evaluate(candidates, view);
+
+        // Both lists are in candidate order, so rules can be lined up with a single walk
+        List<CouponRule> rules = new ArrayList<>(applicable.size());
+        int c = 0;
+        for (ApplicableCoupon coupon : applicable) {
+            while (!candidates.get(c).id().equals(coupon.couponId())) {
+                c++;
             }
+            rules.add(candidates.get(c).rule());
         }
 
-        return Map.of("applicable_coupons", applicableCoupons);
+        CouponProperties.Best budget = couponProperties.getBest();
+        return new CouponCombinationSearch(budget.getMaxNodes(), budget.getMaxCandidates(), budget.getTimeBudgetMs())
+                .search(applicable, rules, view.totalPrice());
+    }
+
+    /**
+     * Applicable coupons for every cart, all evaluated against one catalog snapshot taken when the returned
+     * evaluation runs. Batches above {@code coupons.batch.max-size} are rejected here, before any result is
+     * streamed, so an oversized batch still gets a proper error response.
+     */
+    public BatchEvaluation getApplicableCouponsBatch(List<Cart> carts) {
+        checkBatchSize(carts);
+        return sink -> {
+            CatalogSnapshot snapshot = couponCatalog.snapshot();
+            couponEvaluator.evaluateBatch(snapshot, carts, sink);
+            return snapshot.version();
+        };
+    }
+
+    private void checkBatchSize(List<Cart> carts) {
+        int maxSize = couponProperties.getBatch().getMaxSize();
+        if (carts == null || carts.size() > maxSize) {
+            throw new BatchTooLargeException("Batch must contain at most " + maxSize + " carts");
+        }
     }
 
     public Cart applyCoupon(Long id, Cart cart) throws RuntimeException {
+        // Active, unexpired coupons come straight from the in-memory catalog: no session or JDBC on the hot path
+        CompiledCoupon entry = couponCatalog.find(id);
+        if (entry == null) {
+            entry = loadForApply(id);
+        }
+        CouponStrategy strategy = entry.strategy();
+
+        long start = System.nanoTime();
+        boolean applicable = entry.isApplicable(CartView.of(cart));
+        long checked = System.nanoTime();
+        couponMetrics.recordStrategy(strategy.getType(), CouponMetrics.Phase.IS_APPLICABLE, checked - start);
+        if (!applicable) {
+            throw new com.monkcommerce.coupons.exception.CouponCriteriaNotMetException("Coupon criteria not met");
+        }
+
+        // Claim a redemption first so concurrent applies can never overshoot the caps
+        RedemptionTracker.Reservation reservation = redemptionTracker.reserve(entry.coupon(), cart.getUserId());
+        Cart updated;
+        try {
+            // This actually modifies the cart and returns it
+            log.debug("Applying coupon {} to cart", entry.id());
+            updated = entry.applyDiscount(cart);
+        } catch (RuntimeException e) {
+            redemptionTracker.release(reservation);
+            throw e;
+        }
+        redemptionTracker.commit(reservation);
+        couponMetrics.recordStrategy(strategy.getType(), CouponMetrics.Phase.APPLY_DISCOUNT, System.nanoTime() - checked);
+        return updated;
+    }
+
+    /**
+     * True when {@link #applyCoupon} would be served from memory alone for this coupon and user:
+     * the catalog is loaded and holds the coupon, and its redemption counters are tracked.
+     */
+    public boolean appliesFromMemory(Long id, String userId) {
+        if (!couponCatalog.isLoaded()) {
+            return false;
+        }
+        CompiledCoupon entry = couponCatalog.find(id);
+        return entry != null && redemptionTracker.isTracked(entry.coupon(), userId);
+    }
+
+    /**
+     * True when {@link #getApplicableCoupons} would be served from memory alone.
+     */
+    public boolean evaluatesFromMemory() {
+        return couponCatalog.isLoaded();
+    }
+
+    // Coupons the catalog does not hold: report why from the stored row, or evaluate them through the raw details
+    private CompiledCoupon loadForApply(Long id) {
         Coupon coupon = getCoupon(id);
         // Check active + expiration
         if (!coupon.isActive() || (coupon.getExpirationDate() != null && coupon.getExpirationDate().isBefore(LocalDateTime.now()))) {
@@ -91,18 +215,11 @@ public class CouponService {
             throw new com.monkcommerce.coupons.exception.CouponExpiredException("Coupon expired or inactive: " + coupon.getId());
         }
 
-        CouponStrategy strategy = strategyMap.get(coupon.getType());
+        CouponStrategy strategy = strategyRegistry.find(coupon.getType());
 
         if (strategy == null) {
             throw new com.monkcommerce.coupons.exception.InvalidCouponTypeException("Invalid coupon type: " + coupon.getType());
         }
-
-        if (!strategy.isApplicable(cart, coupon.getDetails())) {
-            throw new com.monkcommerce.coupons.exception.CouponCriteriaNotMetException("Coupon criteria not met");
-        }
-
-        // This actually modifies the cart and returns it
-        log.info("Applying coupon {} to cart", coupon.getId());
-        return strategy.applyDiscount(cart, coupon.getDetails());
+        return new CompiledCoupon(coupon, strategy, null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.model.Coupon;
+
+import java.io.IOException;
+
+/**
+ * Receives exported coupons one at a time while the result set is still open.
+ */
+@FunctionalInterface
+public interface CouponSink {
+    void accept(Coupon coupon) throws IOException;
+}
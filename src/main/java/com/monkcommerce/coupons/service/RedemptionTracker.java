@@ -0,0 +1,286 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.exception.CouponCriteriaNotMetException;
+import com.monkcommerce.coupons.exception.CouponLimitReachedException;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponRedemption;
+import com.monkcommerce.coupons.repository.CouponRedemptionRepository;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory redemption counters enforcing {@code maxRedemptions} and {@code maxRedemptionsPerUser}.
+ *
+ * Applying a coupon first reserves a slot with a compare-and-set on the coupon's (and user's) counter,
+ * which can never push a counter past its cap and never blocks other appliers. The reservation is then
+ * committed once the discount is applied, or released if applying fails. Committed redemptions accumulate
+ * in {@link LongAdder}s and are written back by a scheduled flush as one JDBC batch per table, so a
+ * flash sale never serializes on the coupon row.
+ *
+ * Counters are seeded from the database on first use, so caps hold across restarts as long as the
+ * previous instance flushed. Once flushed, counters unused for {@code coupons.redemption.idle-evict-ms}
+ * are dropped and seeded again on their next use. Running several instances against one database needs
+ * a shared counter and is not covered here.
+ */
+@Component
+public class RedemptionTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(RedemptionTracker.class);
+
+    private final CouponRepository couponRepository;
+    private final CouponRedemptionRepository redemptionRepository;
+
+    private final ConcurrentMap<Long, Usage> couponUsage = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UserKey, Usage> userUsage = new ConcurrentHashMap<>();
+    private final long idleEvictNanos;
+
+    public RedemptionTracker(CouponRepository couponRepository, CouponRedemptionRepository redemptionRepository,
+                             CouponProperties properties) {
+        this.couponRepository = couponRepository;
+        this.redemptionRepository = redemptionRepository;
+        this.idleEvictNanos = TimeUnit.MILLISECONDS.toNanos(properties.getRedemption().getIdleEvictMs());
+    }
+
+    /**
+     * Reserves one redemption of the coupon for the user, or throws if a cap is already reached.
+     * Every successful reservation must be followed by exactly one {@link #commit} or {@link #release}.
+     */
+    public Reservation reserve(Coupon coupon, String userId) {
+        Usage global = enter(couponUsage, coupon.getId(),
+                id -> couponRepository.findRedemptionCount(id).orElse(coupon.getRedemptionCount()));
+        long cap = coupon.getMaxRedemptions() == null ? Long.MAX_VALUE : coupon.getMaxRedemptions();
+        if (!global.tryAcquire(cap)) {
+            global.exit();
+            throw new CouponLimitReachedException("Coupon redemption limit reached: " + coupon.getId());
+        }
+
+        Integer perUserCap = coupon.getMaxRedemptionsPerUser();
+        if (perUserCap == null) {
+            return new Reservation(global, null);
+        }
+        if (userId == null) {
+            global.release();
+            throw new CouponCriteriaNotMetException("Coupon has a per-user limit, a userId is required");
+        }
+        Usage user = enter(userUsage, new UserKey(coupon.getId(), userId),
+                key -> redemptionRepository.findByCouponIdAndUserId(key.couponId(), key.userId())
+                        .map(CouponRedemption::getCount)
+                        .orElse(0L));
+        if (!user.tryAcquire(perUserCap)) {
+            user.exit();
+            global.release();
+            throw new CouponLimitReachedException("Coupon redemption limit reached for user: " + coupon.getId());
+        }
+        return new Reservation(global, user);
+    }
+
+    /**
+     * True when the counters a reservation of this coupon for this user needs are already held,
+     * so {@link #reserve} will not read them from storage (unless an idle flush retires them meanwhile).
+     */
+    public boolean isTracked(Coupon coupon, String userId) {
+        if (!couponUsage.containsKey(coupon.getId())) {
+            return false;
+        }
+        return coupon.getMaxRedemptionsPerUser() == null || userId == null
+                || userUsage.containsKey(new UserKey(coupon.getId(), userId));
+    }
+
+    public void commit(Reservation reservation) {
+        reservation.global().commit();
+        if (reservation.user() != null) {
+            reservation.user().commit();
+        }
+    }
+
+    public void release(Reservation reservation) {
+        reservation.global().release();
+        if (reservation.user() != null) {
+            reservation.user().release();
+        }
+    }
+
+    /**
+     * Writes committed redemptions back to the database, then drops idle counters with nothing left to write.
+     * Deltas that fail to write are kept for the next run.
+     */
+    @Scheduled(fixedDelayString = "${coupons.redemption.flush-interval-ms:1000}")
+    public void flush() {
+        Map<Long, Long> couponDeltas = new HashMap<>();
+        List<Usage> couponFlushed = new ArrayList<>();
+        couponUsage.forEach((id, usage) -> {
+            long delta = usage.pending.sumThenReset();
+            if (delta != 0) {
+                couponDeltas.put(id, delta);
+                couponFlushed.add(usage);
+            }
+        });
+        if (!couponDeltas.isEmpty()) {
+            try {
+                couponRepository.addRedemptions(couponDeltas);
+            } catch (RuntimeException e) {
+                restore(couponFlushed, new ArrayList<>(couponDeltas.values()));
+                log.warn("Failed to flush redemptions of {} coupons: {}", couponDeltas.size(), e.getMessage());
+            }
+        }
+
+        List<CouponRedemption> userDeltas = new ArrayList<>();
+        List<Usage> userFlushed = new ArrayList<>();
+        userUsage.forEach((key, usage) -> {
+            long delta = usage.pending.sumThenReset();
+            if (delta != 0) {
+                CouponRedemption row = new CouponRedemption(key.couponId(), key.userId());
+                row.setCount(delta);
+                userDeltas.add(row);
+                userFlushed.add(usage);
+            }
+        });
+        if (!userDeltas.isEmpty()) {
+            try {
+                redemptionRepository.addCounts(userDeltas);
+            } catch (RuntimeException e) {
+                restore(userFlushed, userDeltas.stream().map(CouponRedemption::getCount).toList());
+                log.warn("Failed to flush redemptions of {} coupon/user pairs: {}", userDeltas.size(), e.getMessage());
+            }
+        }
+
+        long idleSince = System.nanoTime() - idleEvictNanos;
+        int evicted = evictIdle(couponUsage, idleSince) + evictIdle(userUsage, idleSince);
+        if (!couponDeltas.isEmpty() || !userDeltas.isEmpty() || evicted > 0) {
+            log.debug("Flushed redemptions for {} coupons and {} coupon/user pairs, evicted {} idle counters",
+                    couponDeltas.size(), userDeltas.size(), evicted);
+        }
+    }
+
+    int trackedCounters() {
+        return couponUsage.size() + userUsage.size();
+    }
+
+    private static void restore(List<Usage> usages, List<Long> deltas) {
+        for (int i = 0; i < usages.size(); i++) {
+            usages.get(i).pending.add(deltas.get(i));
+        }
+    }
+
+    private static <K> int evictIdle(ConcurrentMap<K, Usage> usages, long idleSince) {
+        int evicted = 0;
+        for (Map.Entry<K, Usage> entry : usages.entrySet()) {
+            if (entry.getValue().retire(idleSince) && usages.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    // The live counter for the key, entered for one reservation; seeds it from storage when absent
+    private static <K> Usage enter(ConcurrentMap<K, Usage> usages, K key, ToLongFunction<K> stored) {
+        while (true) {
+            Usage usage = usages.get(key);
+            if (usage == null) {
+                // Seed outside the map so the database read never holds a map bin
+                Usage seeded = new Usage(stored.applyAsLong(key));
+                usage = usages.putIfAbsent(key, seeded);
+                if (usage == null) {
+                    usage = seeded;
+                }
+            }
+            if (usage.enter()) {
+                return usage;
+            }
+            // Retired by a concurrent flush; drop it so the next lookup seeds a fresh one
+            usages.remove(key, usage);
+        }
+    }
+
+    public record Reservation(Usage global, Usage user) {
+    }
+
+    private record UserKey(Long couponId, String userId) {
+    }
+
+    /**
+     * Reserved-or-committed count plus the committed delta not yet flushed.
+     */
+    public static final class Usage {
+
+        private final AtomicLong used;
+        private final LongAdder pending = new LongAdder();
+        // Reservations not yet committed or released; -1 once retired, after which nothing may enter
+        private final AtomicInteger open = new AtomicInteger();
+        private volatile long lastUsed = System.nanoTime();
+
+        Usage(long used) {
+            this.used = new AtomicLong(used);
+        }
+
+        boolean enter() {
+            lastUsed = System.nanoTime();
+            int current;
+            do {
+                current = open.get();
+                if (current < 0) {
+                    return false;
+                }
+            } while (!open.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void exit() {
+            open.decrementAndGet();
+        }
+
+        void commit() {
+            // Before exit(), so a counter with no open reservations has every commit in pending
+            pending.increment();
+            exit();
+        }
+
+        // Retires the counter if unused since idleSince, with no open reservation and nothing left to flush
+        boolean retire(long idleSince) {
+            if (lastUsed - idleSince > 0 || !open.compareAndSet(0, -1)) {
+                return false;
+            }
+            if (pending.sum() != 0) {
+                open.set(0);
+                return false;
+            }
+            return true;
+        }
+
+        boolean tryAcquire(long cap) {
+            long current;
+            do {
+                current = used.get();
+                if (current >= cap) {
+                    return false;
+                }
+            } while (!used.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void release() {
+            used.decrementAndGet();
+            exit();
+        }
+
+        public long used() {
+            return used.get();
+        }
+    }
+}
@@ -2,16 +2,23 @@ package com.monkcommerce.coupons.strategy;
 
 import com.monkcommerce.coupons.model.Cart;
 import com.monkcommerce.coupons.model.CartItem;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.rule.BxGyRule;
+import com.monkcommerce.coupons.rule.RewardAllocation;
+import com.monkcommerce.coupons.utils.Money;
+import com.monkcommerce.coupons.utils.PrimitiveSort;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.function.LongPredicate;
 
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Component
-public class BxGyStrategy implements CouponStrategy {
+public class BxGyStrategy implements TypedCouponStrategy<BxGyRule> {
 
     private static final Logger log = LoggerFactory.getLogger(BxGyStrategy.class);
 
@@ -21,116 +28,226 @@ public class BxGyStrategy implements CouponStrategy {
     }
 
     @Override
-    public boolean isApplicable(Cart cart, Map<String, Object> details) {
-        // Null-safe: guard against missing cart or details to avoid NPEs.
-        if (cart == null || details == null) {
-            log.debug("BxGyStrategy: cart or details is null -> not applicable");
-            return false;
+    public BxGyRule compile(Map<String, Object> details) {
+        // Null-safe: guard against missing details to avoid NPEs.
+        if (details == null) {
+            log.debug("BxGyStrategy: details is null -> no rule");
+            return null;
         }
-        List<Map<String, Object>> buyProducts = (List<Map<String, Object>>) details.get("buy_products");
-        List<Map<String, Object>> getProducts = (List<Map<String, Object>>) details.get("get_products");
+        List<?> buyProducts = details.get("buy_products") instanceof List<?> list ? list : null;
+        List<?> getProducts = details.get("get_products") instanceof List<?> list ? list : null;
 
-        // Null-safe: require both buy and get product lists and cart items
+        // Null-safe: require both buy and get product lists
         if (buyProducts == null || buyProducts.isEmpty() || getProducts == null || getProducts.isEmpty()) {
             log.debug("BxGyStrategy: buy/get product lists missing or empty");
-            return false;
+            return null;
+        }
+
+        long[] buyIds = new long[buyProducts.size()];
+        int[] buyQty = new int[buyProducts.size()];
+        int buys = 0;
+        for (Object entry : buyProducts) {
+            if (!(entry instanceof Map<?, ?> b)) {
+                continue;
+            }
+            Object pid = b.get("product_id");
+            Object qty = b.get("quantity");
+            // Entries without a positive numeric quantity can never complete a buy set
+            if (!(pid instanceof Number) || !(qty instanceof Number) || ((Number) qty).intValue() <= 0) {
+                continue;
+            }
+            buyIds[buys] = ((Number) pid).longValue();
+            buyQty[buys] = ((Number) qty).intValue();
+            buys++;
         }
-        if (cart.getItems() == null || cart.getItems().isEmpty()) {
+
+        long[] getIds = new long[getProducts.size()];
+        int[] getQty = new int[getProducts.size()];
+        int gets = 0;
+        for (Object entry : getProducts) {
+            if (!(entry instanceof Map<?, ?> g)) {
+                continue;
+            }
+            Object pid = g.get("product_id");
+            if (!(pid instanceof Number)) {
+                continue;
+            }
+            Object qty = g.get("quantity");
+            getIds[gets] = ((Number) pid).longValue();
+            getQty[gets] = (qty instanceof Number) ? ((Number) qty).intValue() : 0;
+            gets++;
+        }
+
+        if (buys == 0 || gets == 0) {
+            log.debug("BxGyStrategy: no usable buy/get entries");
+            return null;
+        }
+
+        int limit = 0;
+        Object rep = details.get("repetition_limit");
+        if (rep instanceof Number) limit = ((Number) rep).intValue();
+
+        RewardAllocation allocation = RewardAllocation.parse(details.get("reward_allocation"));
+        if (allocation == null) {
+            log.debug("BxGyStrategy: unknown reward_allocation {}", details.get("reward_allocation"));
+            return null;
+        }
+
+        return new BxGyRule(Arrays.copyOf(buyIds, buys), Arrays.copyOf(buyQty, buys),
+                Arrays.copyOf(getIds, gets), Arrays.copyOf(getQty, gets), limit, allocation);
+    }
+
+    @Override
+    public boolean isApplicable(CartView cart, BxGyRule rule) {
+        if (cart.isEmpty()) {
             log.debug("BxGyStrategy: cart has no items");
             return false;
         }
 
         // Logic: Must have at least one item from "Buy" list and one from "Get" list
-        boolean hasBuyItem = cart.getItems().stream().anyMatch(item ->
-            buyProducts.stream().anyMatch(b ->
-                java.util.Objects.equals(((Number) b.get("product_id")).longValue(), item.getProductId())));
-
-        boolean hasGetItem = cart.getItems().stream().anyMatch(item ->
-            getProducts.stream().anyMatch(g ->
-                java.util.Objects.equals(((Number) g.get("product_id")).longValue(), item.getProductId())));
+        CartView.ProductTotals totals = cart.productTotals();
+        boolean hasBuyItem = containsAny(totals, rule.sortedBuyIds(), rule::buys);
+        boolean hasGetItem = hasBuyItem && containsAny(totals, rule.sortedGetIds(), rule::rewards);
 
         boolean applicable = hasBuyItem && hasGetItem;
-        log.debug("BxGyStrategy: hasBuyItem={}, hasGetItem={}, applicable={}", hasBuyItem, hasGetItem, applicable);
+        if (log.isDebugEnabled()) {
+            log.debug("BxGyStrategy: hasBuyItem={}, hasGetItem={}, applicable={}", hasBuyItem, hasGetItem, applicable);
+        }
         return applicable;
     }
 
     @Override
-    public Cart applyDiscount(Cart cart, Map<String, Object> details) {
+    public long computeDiscount(CartView cart, BxGyRule rule) {
+        return allocate(cart, rule, null);
+    }
+
+    @Override
+    public Cart applyDiscount(Cart cart, BxGyRule rule) {
         // Null-safe: if inputs are missing, return the cart unchanged and log.
-        if (cart == null || details == null) {
-            log.debug("BxGyStrategy.applyDiscount: cart or details is null -> no-op");
+        if (cart == null || cart.getItems() == null || cart.getItems().isEmpty()) {
+            log.debug("BxGyStrategy.applyDiscount: cart items missing -> no-op");
             return cart;
         }
-        List<Map<String, Object>> buyProducts = (List<Map<String, Object>>) details.get("buy_products");
-        List<Map<String, Object>> getProducts = (List<Map<String, Object>>) details.get("get_products");
 
-        if (buyProducts == null || buyProducts.isEmpty() || getProducts == null || getProducts.isEmpty() || cart.getItems() == null || cart.getItems().isEmpty()) {
-            log.debug("BxGyStrategy.applyDiscount: configuration or cart items missing -> no-op");
+        CartView view = CartView.of(cart);
+        if (freeItemCount(view, rule) <= 0) {
+            log.debug("BxGyStrategy.applyDiscount: no free items -> nothing to apply");
             return cart;
         }
+        long[] lineDiscounts = new long[view.size()];
+        long totalDiscount = allocate(view, rule, lineDiscounts);
+        for (int i = 0; i < view.size(); i++) {
+            if (lineDiscounts[i] != 0) {
+                CartItem item = cart.getItems().get(view.itemIndex(i));
+                item.setTotalDiscount(Money.toMajor(Money.toMinor(item.getTotalDiscount()) + lineDiscounts[i]));
+            }
+        }
 
-        int limit = 0;
-        Object rep = details.get("repetition_limit");
-        if (rep instanceof Number) limit = ((Number) rep).intValue();
+        cart.setTotalDiscount(Money.toMajor(totalDiscount));
+        cart.setFinalPrice(Money.toMajor(Money.toMinor(cart.getTotalPrice()) - totalDiscount));
+        if (log.isDebugEnabled()) {
+            log.debug("BxGyStrategy.applyDiscount: applied totalDiscount={}", totalDiscount);
+        }
+        return cart;
+    }
 
-        int repeatSets = 0;
+    /**
+     * Gives the earned free units away in the rule's allocation order and returns their total price.
+     * When {@code lineDiscounts} is given, each line's share is also written to it; this is the only
+     * place discounts are computed, so the dry-run and apply paths cannot disagree.
+     */
+    private static long allocate(CartView cart, BxGyRule rule, long[] lineDiscounts) {
+        return allocate(cart, rule, freeItemCount(cart, rule), lineDiscounts);
+    }
 
-        for (Map<String, Object> buyConfig : buyProducts) {
+    /**
+     * Total price of {@code freeItems} "get" units given away in the rule's allocation order. Lines the rule
+     * does not reward are skipped, so {@code rewardLines} may hold just the rewarded lines, in cart order;
+     * callers tracking their own buy counts use this with {@link #freeItems(BxGyRule, int)}.
+     */
+    public static long rewardValue(CartView rewardLines, BxGyRule rule, int freeItems) {
+        return allocate(rewardLines, rule, freeItems, null);
+    }
 
-            int buyCountInCart = 0;
+    /**
+     * Free units earned by this many completed buy sets, capped by the repetition limit.
+     */
+    public static int freeItems(BxGyRule rule, int completedSets) {
+        int repeatSets = Math.min(completedSets, rule.repetitionLimit());
+        return repeatSets <= 0 ? 0 : repeatSets * rule.freePerSet();
+    }
 
-            for (CartItem item : cart.getItems()) {
-                Object pid = buyConfig.get("product_id");
-                Object qtyObj = buyConfig.get("quantity");
-                if (pid != null && qtyObj instanceof Number && item.getProductId().equals(((Number) pid).longValue())) {
-                    buyCountInCart += item.getQuantity();
+    private static long allocate(CartView cart, BxGyRule rule, int freeItems, long[] lineDiscounts) {
+        if (freeItems <= 0) {
+            return 0;
+        }
+        // Price-ordered policies sort the eligible lines first; cart order walks and filters every line in place
+        int[] lines = null;
+        int eligible = cart.size();
+        if (rule.allocation() != RewardAllocation.CART_ORDER) {
+            lines = new int[cart.size()];
+            eligible = 0;
+            long[] keys = new long[cart.size()];
+            boolean descending = rule.allocation() == RewardAllocation.MOST_EXPENSIVE_FIRST;
+            for (int i = 0; i < cart.size(); i++) {
+                if (rule.rewards(cart.productId(i))) {
+                    lines[eligible++] = i;
+                    keys[i] = descending ? -cart.price(i) : cart.price(i);
                 }
             }
-
-            Object qtyObj = buyConfig.get("quantity");
-            int reqQty = (qtyObj instanceof Number) ? ((Number) qtyObj).intValue() : 1;
-            repeatSets += buyCountInCart / reqQty;
+            PrimitiveSort.sortIndexes(lines, eligible, keys);
         }
 
-        // Calculating repetition and early exit when nothing to apply
-        if (repeatSets > limit) repeatSets = limit;
-        if (repeatSets == 0) {
-            log.debug("BxGyStrategy.applyDiscount: repeatSets=0 -> nothing to apply");
-            return cart;
+        long totalDiscount = 0;
+        for (int e = 0; e < eligible && freeItems > 0; e++) {
+            int line = lines == null ? e : lines[e];
+            if (lines == null && !rule.rewards(cart.productId(line))) {
+                continue;
+            }
+            int quantityToDiscount = Math.min(cart.quantity(line), freeItems);
+            long discount = Money.times(cart.price(line), quantityToDiscount);
+            if (lineDiscounts != null) {
+                lineDiscounts[line] = discount;
+            }
+            totalDiscount += discount;
+            freeItems -= quantityToDiscount;
         }
+        return totalDiscount;
+    }
 
-        // Applying Free Items
-        int getQtyReward = 0;
-        for (Map<String, Object> getConfig : getProducts) {
-            Object q = getConfig.get("quantity");
-            if (q instanceof Number) getQtyReward += ((Number) q).intValue();
+    // Whether the cart holds any of the rule's products, probing from whichever side is shorter
+    private static boolean containsAny(CartView.ProductTotals totals, long[] ruleIds, LongPredicate ruleHas) {
+        if (ruleIds.length < totals.size()) {
+            for (long id : ruleIds) {
+                if (totals.contains(id)) {
+                    return true;
+                }
+            }
+        } else {
+            for (int p = 0; p < totals.size(); p++) {
+                if (ruleHas.test(totals.productId(p))) {
+                    return true;
+                }
+            }
         }
+        return false;
+    }
 
-        int totalFreeItems = repeatSets * getQtyReward;
-        double totalDiscount = 0;
-
-        // Assumption: which ever items are applicable are proccessed in FCFS fashion
-        for (CartItem item : cart.getItems()) {
-            if (totalFreeItems <= 0) break;
-            // Checking if this item is in the "Get" list
-            boolean isGetItem = getProducts.stream().anyMatch(g -> {
-                Object pid = g.get("product_id");
-                return pid != null && java.util.Objects.equals(((Number) pid).longValue(), item.getProductId());
-            });
-
-            if (isGetItem) {
-                int quantityToDiscount = Math.min(item.getQuantity(), totalFreeItems);
-                double discount = quantityToDiscount * item.getPrice();
-                item.setTotalDiscount(item.getTotalDiscount() + discount);
-                totalDiscount += discount;
-                totalFreeItems -= quantityToDiscount;
+    // Number of free units the cart earns: completed buy sets (capped by the repetition limit) times the get quantity
+    private static int freeItemCount(CartView cart, BxGyRule rule) {
+        CartView.ProductTotals totals = cart.productTotals();
+        long[] buyIds = rule.buyIds();
+        int repeatSets = 0;
+        // Look up from whichever side is shorter: the rule's buy entries or the cart's products
+        if (buyIds.length < totals.size()) {
+            for (int b = 0; b < buyIds.length; b++) {
+                repeatSets += totals.quantityOf(buyIds[b]) / rule.buyQty()[b];
+            }
+        } else {
+            for (int p = 0; p < totals.size(); p++) {
+                repeatSets += rule.setsFor(totals.productId(p), totals.quantity(p));
             }
         }
-
-        cart.setTotalDiscount(totalDiscount);
-        cart.setFinalPrice(cart.getTotalPrice() - totalDiscount);
-        log.debug("BxGyStrategy.applyDiscount: applied totalDiscount={}", totalDiscount);
-        return cart;
+        return freeItems(rule, repeatSets);
     }
-
 }
@@ -1,6 +1,9 @@
 package com.monkcommerce.coupons.strategy;
 
 import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.rule.CartWiseRule;
+import com.monkcommerce.coupons.utils.Money;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -8,7 +11,7 @@ import org.springframework.stereotype.Component;
 import java.util.Map;
 
 @Component
-public class CartWiseStrategy implements CouponStrategy {
+public class CartWiseStrategy implements TypedCouponStrategy<CartWiseRule> {
 
     private static final Logger log = LoggerFactory.getLogger(CartWiseStrategy.class);
 
@@ -18,40 +21,49 @@ public class CartWiseStrategy implements CouponStrategy {
     }
 
     @Override
-    public boolean isApplicable(Cart cart, Map<String, Object> details) {
+    public CartWiseRule compile(Map<String, Object> details) {
         // Null-safe: reject when inputs missing
-        if (cart == null || details == null) {
-            log.debug("CartWiseStrategy: cart or details is null -> not applicable");
-            return false;
+        if (details == null) {
+            log.debug("CartWiseStrategy: details is null -> no rule");
+            return null;
         }
         Object thr = details.get("threshold");
-        if (!(thr instanceof Number)) {
-            log.debug("CartWiseStrategy: threshold missing or not numeric");
-            return false;
+        Object disc = details.get("discount");
+        if (!(thr instanceof Number) || !(disc instanceof Number)) {
+            log.debug("CartWiseStrategy: threshold/discount missing or not numeric");
+            return null;
         }
-        double threshold = ((Number) thr).doubleValue();
-        boolean applicable = cart.getTotalPrice() > threshold;
-        log.debug("CartWiseStrategy: totalPrice={}, threshold={}, applicable={}", cart.getTotalPrice(), threshold, applicable);
-        return applicable;
+        return new CartWiseRule(Money.toMinor(((Number) thr).doubleValue()), Money.basisPoints(((Number) disc).doubleValue()));
     }
 
     @Override
-    public Cart applyDiscount(Cart cart, Map<String, Object> details) {
-        if (cart == null || details == null) {
-            log.debug("CartWiseStrategy.applyDiscount: cart or details is null -> no-op");
-            return cart;
+    public boolean isApplicable(CartView cart, CartWiseRule rule) {
+        boolean applicable = cart.totalPrice() > rule.threshold();
+        if (log.isDebugEnabled()) {
+            log.debug("CartWiseStrategy: totalPrice={}, threshold={}, applicable={}", cart.totalPrice(), rule.threshold(), applicable);
         }
-        Object disc = details.get("discount");
-        if (!(disc instanceof Number)) {
-            log.debug("CartWiseStrategy.applyDiscount: discount missing or not numeric -> no-op");
+        return applicable;
+    }
+
+    @Override
+    public long computeDiscount(CartView cart, CartWiseRule rule) {
+        return Money.percentOf(cart.totalPrice(), rule.discountBps());
+    }
+
+    @Override
+    public Cart applyDiscount(Cart cart, CartWiseRule rule) {
+        if (cart == null) {
+            log.debug("CartWiseStrategy.applyDiscount: cart is null -> no-op");
             return cart;
         }
-        double discountPercent = ((Number) disc).doubleValue();
-        double discountAmount = cart.getTotalPrice() * (discountPercent / 100.0);
+        long totalPrice = Money.toMinor(cart.getTotalPrice());
+        long discountAmount = Money.percentOf(totalPrice, rule.discountBps());
 
-        cart.setTotalDiscount(discountAmount);
-        cart.setFinalPrice(cart.getTotalPrice() - discountAmount);
-        log.debug("CartWiseStrategy.applyDiscount: applied discountPercent={}, discountAmount={}", discountPercent, discountAmount);
+        cart.setTotalDiscount(Money.toMajor(discountAmount));
+        cart.setFinalPrice(Money.toMajor(totalPrice - discountAmount));
+        if (log.isDebugEnabled()) {
+            log.debug("CartWiseStrategy.applyDiscount: applied discountBps={}, discountAmount={}", rule.discountBps(), discountAmount);
+        }
         return cart;
     }
 }
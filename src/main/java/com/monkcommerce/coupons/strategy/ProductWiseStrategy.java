@@ -2,6 +2,9 @@ package com.monkcommerce.coupons.strategy;
 
 import com.monkcommerce.coupons.model.Cart;
 import com.monkcommerce.coupons.model.CartItem;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.rule.ProductWiseRule;
+import com.monkcommerce.coupons.utils.Money;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -9,7 +12,7 @@ import org.springframework.stereotype.Component;
 import java.util.Map;
 
 @Component
-public class ProductWiseStrategy implements CouponStrategy {
+public class ProductWiseStrategy implements TypedCouponStrategy<ProductWiseRule> {
 
     private static final Logger log = LoggerFactory.getLogger(ProductWiseStrategy.class);
 
@@ -19,59 +22,69 @@ public class ProductWiseStrategy implements CouponStrategy {
     }
 
     @Override
-    public boolean isApplicable(Cart cart, Map<String, Object> details) {
+    public ProductWiseRule compile(Map<String, Object> details) {
         // Null-safe guards
-        if (cart == null || details == null) {
-            log.debug("ProductWiseStrategy: cart or details is null -> not applicable");
-            return false;
+        if (details == null) {
+            log.debug("ProductWiseStrategy: details is null -> no rule");
+            return null;
+        }
+        Object pidObj = details.get("product_id");
+        Object discObj = details.get("discount");
+        if (!(pidObj instanceof Number) || !(discObj instanceof Number)) {
+            log.debug("ProductWiseStrategy: product_id or discount missing or not a number");
+            return null;
         }
-        if (cart.getItems() == null || cart.getItems().isEmpty()) {
+        return new ProductWiseRule(((Number) pidObj).longValue(), Money.basisPoints(((Number) discObj).doubleValue()));
+    }
+
+    @Override
+    public boolean isApplicable(CartView cart, ProductWiseRule rule) {
+        if (cart.isEmpty()) {
             log.debug("ProductWiseStrategy: cart has no items");
             return false;
         }
-        Object pidObj = details.get("product_id");
-        if (!(pidObj instanceof Number)) {
-            log.debug("ProductWiseStrategy: product_id missing or not a number");
-            return false;
+        boolean present = cart.productTotals().contains(rule.productId());
+        if (log.isDebugEnabled()) {
+            log.debug("ProductWiseStrategy: targetProductId={}, present={}", rule.productId(), present);
         }
-        Long targetProductId = ((Number) pidObj).longValue();
-        boolean present = cart.getItems().stream().anyMatch(item -> item.getProductId().equals(targetProductId));
-        log.debug("ProductWiseStrategy: targetProductId={}, present={}", targetProductId, present);
         return present;
     }
 
     @Override
-    public Cart applyDiscount(Cart cart, Map<String, Object> details) {
-        if (cart == null || details == null) {
-            log.debug("ProductWiseStrategy.applyDiscount: cart or details is null -> no-op");
-            return cart;
-        }
-        if (cart.getItems() == null || cart.getItems().isEmpty()) {
-            log.debug("ProductWiseStrategy.applyDiscount: cart has no items -> no-op");
-            return cart;
-        }
-        Object pidObj = details.get("product_id");
-        Object discObj = details.get("discount");
-        if (!(pidObj instanceof Number) || !(discObj instanceof Number)) {
-            log.debug("ProductWiseStrategy.applyDiscount: invalid product_id or discount -> no-op");
+    public long computeDiscount(CartView cart, ProductWiseRule rule) {
+        // Rounded once over all matching lines; applyDiscount spreads that same amount across them
+        return Money.percentOf(cart.productTotals().subtotalOf(rule.productId()), rule.discountBps());
+    }
+
+    @Override
+    public Cart applyDiscount(Cart cart, ProductWiseRule rule) {
+        if (cart == null || cart.getItems() == null || cart.getItems().isEmpty()) {
+            log.debug("ProductWiseStrategy.applyDiscount: cart is null or has no items -> no-op");
             return cart;
         }
-        Long targetProductId = ((Number) pidObj).longValue();
-        double discountPercent = ((Number) discObj).doubleValue();
-
-        double totalDiscount = 0;
+        long amount = 0;
+        long totalDiscount = 0;
         for (CartItem item : cart.getItems()) {
-            if (item.getProductId().equals(targetProductId)) {
-                double discount = (item.getPrice() * item.getQuantity()) * (discountPercent / 100.0);
-                item.setTotalDiscount(discount);
-                totalDiscount += discount;
+            if (matches(item, rule.productId())) {
+                // Each line gets the growth of the rounded running discount, so the lines add up to computeDiscount
+                amount = Math.addExact(amount, Money.times(Money.toMinor(item.getPrice()), item.getQuantity()));
+                long discountSoFar = Money.percentOf(amount, rule.discountBps());
+                item.setTotalDiscount(Money.toMajor(discountSoFar - totalDiscount));
+                totalDiscount = discountSoFar;
             }
         }
 
-        cart.setTotalDiscount(totalDiscount);
-        cart.setFinalPrice(cart.getTotalPrice() - totalDiscount);
-        log.debug("ProductWiseStrategy.applyDiscount: applied totalDiscount={}", totalDiscount);
+        cart.setTotalDiscount(Money.toMajor(totalDiscount));
+        cart.setFinalPrice(Money.toMajor(Money.toMinor(cart.getTotalPrice()) - totalDiscount));
+        if (log.isDebugEnabled()) {
+            log.debug("ProductWiseStrategy.applyDiscount: applied totalDiscount={}", totalDiscount);
+        }
         return cart;
     }
 
-}
\ No newline at end of file
+    private static boolean matches(CartItem item, long productId) {
+        Long itemProductId = item.getProductId();
+        return itemProductId != null && itemProductId == productId;
+    }
+
+}
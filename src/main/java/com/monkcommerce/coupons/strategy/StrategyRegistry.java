@@ -0,0 +1,177 @@
+package com.monkcommerce.coupons.strategy;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.exception.InvalidCouponDetailsException;
+import com.monkcommerce.coupons.exception.InvalidCouponTypeException;
+import com.monkcommerce.coupons.model.Coupon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The coupon strategies the service knows, shared by every component that dispatches on a coupon type.
+ *
+ * Registering a strategy for a known type replaces the old one. Catalog entries hold their strategy
+ * directly, so the registry is only consulted when coupons are validated or compiled.
+ *
+ * Besides the Spring beans, strategies are picked up through {@link ServiceLoader}: providers on the
+ * application classpath at startup, and jars dropped into {@code coupons.strategies.plugin-dir}, which is
+ * rescanned every {@code coupons.strategies.scan-interval-ms}. Listeners (the catalog) are told once per
+ * registration or per plugin jar, so coupons of a newly loaded type start applying without a restart.
+ */
+@Component
+public class StrategyRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(StrategyRegistry.class);
+
+    private final Map<String, CouponStrategy> strategies = new ConcurrentHashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private final CouponProperties.Strategies properties;
+    // Last modified time of each plugin jar already loaded; a jar is reloaded when it changes
+    private final Map<Path, Long> loadedJars = new HashMap<>();
+
+    public StrategyRegistry(List<CouponStrategy> strategies, CouponProperties properties) {
+        this.properties = properties.getStrategies();
+        for (CouponStrategy strategy : strategies) {
+            try {
+                put(strategy);
+            } catch (RuntimeException e) {
+                log.warn("Skipping strategy during registration due to error: {}", e.getMessage());
+            }
+        }
+        // Beans win over classpath providers declaring the same type
+        loadProviders(ServiceLoader.load(CouponStrategy.class, StrategyRegistry.class.getClassLoader()), null);
+    }
+
+    /**
+     * Registers a strategy under its {@link CouponStrategy#getType()}, replacing any previous one.
+     */
+    public void register(CouponStrategy strategy) {
+        put(strategy);
+        listeners.forEach(Runnable::run);
+    }
+
+    // Called after every registration or plugin jar, on the registering thread
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    // The strategy for the type, or null
+    public CouponStrategy find(String type) {
+        return type == null ? null : strategies.get(type);
+    }
+
+    /**
+     * Checks that a strategy handles the type and, for typed strategies, that the details compile.
+     * Returns the strategy.
+     */
+    public CouponStrategy validate(String type, Map<String, Object> details) {
+        if (type == null) {
+            throw new InvalidCouponTypeException("Coupon type is required");
+        }
+        CouponStrategy strategy = find(type);
+        if (strategy == null) {
+            throw new InvalidCouponTypeException("Invalid coupon type: " + type);
+        }
+        if (strategy instanceof TypedCouponStrategy<?> typed && typed.compile(details) == null) {
+            throw new InvalidCouponDetailsException("Invalid details for " + type + " coupon");
+        }
+        return strategy;
+    }
+
+    /**
+     * Validates a coupon about to be stored, whether created on its own or imported: type and details as in
+     * {@link #validate(String, Map)}, and redemption limits that are not negative. Returns the strategy.
+     */
+    public CouponStrategy validate(Coupon coupon) {
+        CouponStrategy strategy = validate(coupon.getType(), coupon.getDetails());
+        if ((coupon.getMaxRedemptions() != null && coupon.getMaxRedemptions() < 0)
+                || (coupon.getMaxRedemptionsPerUser() != null && coupon.getMaxRedemptionsPerUser() < 0)) {
+            throw new InvalidCouponDetailsException("Redemption limits must not be negative");
+        }
+        return strategy;
+    }
+
+    /**
+     * Loads the {@link CouponStrategy} providers of jars in the plugin directory that are new or changed since
+     * the last scan. Each jar gets its own class loader; a replaced jar's old loader is left open because
+     * snapshots still in use may hold its classes.
+     */
+    @Scheduled(fixedDelayString = "${coupons.strategies.scan-interval-ms:10000}")
+    public synchronized void scanPlugins() {
+        String dir = properties.getPluginDir();
+        if (dir == null || dir.isBlank() || !Files.isDirectory(Path.of(dir))) {
+            return;
+        }
+        try (DirectoryStream<Path> jars = Files.newDirectoryStream(Path.of(dir), "*.jar")) {
+            for (Path jar : jars) {
+                long modified = Files.getLastModifiedTime(jar).toMillis();
+                Long seen = loadedJars.get(jar);
+                if (seen != null && seen == modified) {
+                    continue;
+                }
+                loadedJars.put(jar, modified);
+                URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, StrategyRegistry.class.getClassLoader());
+                int loaded = loadProviders(ServiceLoader.load(CouponStrategy.class, loader), loader);
+                if (loaded > 0) {
+                    listeners.forEach(Runnable::run);
+                }
+                log.info("Strategy plugin {}: {} strategies loaded", jar.getFileName(), loaded);
+            }
+        } catch (IOException e) {
+            log.warn("Could not scan strategy plugin directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private void put(CouponStrategy strategy) {
+        String type = strategy.getType();
+        if (type == null) {
+            throw new IllegalArgumentException("Strategy " + strategy.getClass().getName() + " declares no type");
+        }
+        strategies.put(type, strategy);
+        log.info("Registered {} strategy {}", type, strategy.getClass().getName());
+    }
+
+    // Registers the providers defined by the given loader without notifying listeners; null means the
+    // application class loader, where beans take precedence
+    private int loadProviders(ServiceLoader<CouponStrategy> serviceLoader, ClassLoader only) {
+        int loaded = 0;
+        try {
+            for (ServiceLoader.Provider<CouponStrategy> provider : (Iterable<ServiceLoader.Provider<CouponStrategy>>) serviceLoader.stream()::iterator) {
+                // A plugin loader also sees the application's own providers through its parent
+                if (only != null && provider.type().getClassLoader() != only) {
+                    continue;
+                }
+                try {
+                    CouponStrategy strategy = provider.get();
+                    if (only == null && find(strategy.getType()) != null) {
+                        continue;
+                    }
+                    put(strategy);
+                    loaded++;
+                } catch (ServiceConfigurationError | RuntimeException e) {
+                    log.warn("Skipping strategy provider {}: {}", provider.type().getName(), e.getMessage());
+                }
+            }
+        } catch (ServiceConfigurationError e) {
+            log.warn("Could not load strategy providers: {}", e.getMessage());
+        }
+        return loaded;
+    }
+}
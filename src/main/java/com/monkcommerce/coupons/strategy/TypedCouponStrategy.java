@@ -0,0 +1,46 @@
+package com.monkcommerce.coupons.strategy;
+
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.rule.CouponRule;
+
+import java.util.Map;
+
+/**
+ * A {@link CouponStrategy} that compiles its {@code details} into a typed rule once
+ * and evaluates carts against that rule. The map-based methods are kept for callers
+ * that still hold raw details and simply compile on the fly.
+ *
+ * {@link #isApplicable(CartView, CouponRule)} and {@link #computeDiscount(CartView, CouponRule)}
+ * are the dry-run path: they must not mutate anything and must agree with the
+ * {@code totalDiscount} that {@link #applyDiscount(Cart, CouponRule)} would produce. Both paths
+ * compute in minor units with {@link com.monkcommerce.coupons.utils.Money}, so they agree to the cent.
+ */
+public interface TypedCouponStrategy<R extends CouponRule> extends CouponStrategy {
+
+    // Returns the compiled rule, or null when the details are missing or malformed.
+    R compile(Map<String, Object> details);
+
+    boolean isApplicable(CartView cart, R rule);
+
+    // Discount in minor units
+    long computeDiscount(CartView cart, R rule);
+
+    Cart applyDiscount(Cart cart, R rule);
+
+    default boolean isApplicable(Cart cart, R rule) {
+        return cart != null && isApplicable(CartView.of(cart), rule);
+    }
+
+    @Override
+    default boolean isApplicable(Cart cart, Map<String, Object> details) {
+        R rule = compile(details);
+        return rule != null && isApplicable(cart, rule);
+    }
+
+    @Override
+    default Cart applyDiscount(Cart cart, Map<String, Object> details) {
+        R rule = compile(details);
+        return rule == null ? cart : applyDiscount(cart, rule);
+    }
+}
@@ -1,21 +1,48 @@
 package com.monkcommerce.coupons.utils;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Stores coupon {@code details} as JSON text.
+ *
+ * Hibernate creates converter instances itself, so the reader and writer are shared statics built once.
+ * Parsed details are cached by column content in a bounded Caffeine cache: catalog loads, resyncs and
+ * refreshes re-read rows whose details rarely change, and those then cost a string lookup instead of a
+ * parse. Cached maps are shared between entities, so they are returned deeply unmodifiable; replace
+ * {@code details} rather than editing it in place.
+ */
 @Converter
 public class JsonConverter implements AttributeConverter<Map<String, Object>, String> {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> DETAILS_TYPE = new TypeReference<>() {};
+    private static final ObjectReader READER = MAPPER.readerFor(DETAILS_TYPE);
+    private static final ObjectWriter WRITER = MAPPER.writerFor(DETAILS_TYPE);
+
+    // Rarely used entries are evicted first, so the rows every load touches stay cached
+    static final int MAX_CACHED = 10_000;
+    private static final Cache<String, Map<String, Object>> PARSED = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED)
+            .build();
 
     @Override
     public String convertToDatabaseColumn(Map<String, Object> attribute) {
         try {
-            return attribute == null ? null : objectMapper.writeValueAsString(attribute);
+            return attribute == null ? null : WRITER.writeValueAsString(attribute);
         } catch (JsonProcessingException e) {
             throw new IllegalArgumentException("Error converting map to JSON", e);
         }
@@ -23,13 +50,38 @@ public class JsonConverter implements AttributeConverter<Map<String, Object>, St
 
     @Override
     public Map<String, Object> convertToEntityAttribute(String dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        return PARSED.get(dbData, JsonConverter::parse);
+    }
+
+    private static Map<String, Object> parse(String dbData) {
         try {
-            return dbData == null ? null : objectMapper.readValue(dbData, Map.class);
+            return freeze(READER.readValue(dbData));
         } catch (IOException e) {
             throw new IllegalArgumentException("Error converting JSON to map", e);
         }
     }
-}
-
 
+    static long cachedEntries() {
+        // Eviction runs asynchronously; settle it before reporting the size
+        PARSED.cleanUp();
+        return PARSED.estimatedSize();
+    }
 
+    @SuppressWarnings("unchecked")
+    private static <T> T freeze(T value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>(map.size() * 2);
+            map.forEach((k, v) -> copy.put(k, freeze(v)));
+            return (T) Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(v -> copy.add(freeze(v)));
+            return (T) Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+}
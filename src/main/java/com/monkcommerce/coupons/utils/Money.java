@@ -0,0 +1,97 @@
+package com.monkcommerce.coupons.utils;
+
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money on primitive {@code long}s: amounts are held in minor units (cents) and
+ * percentages in basis points (1% = 100 bps), so discount arithmetic is exact and allocation-free.
+ *
+ * The JSON API still carries decimal numbers. They are converted at the edge: {@link #toMinor(double)}
+ * rounds an incoming amount to the nearest cent (ties away from zero) and rejects amounts that do not fit,
+ * {@link #toMajor(long)} turns a result back into the double closest to the exact cent value. Percent
+ * discounts are rounded with {@link #DISCOUNT_ROUNDING}; every other operation (sums, quantity x price) is
+ * exact and fails with {@link ArithmeticException} on overflow instead of wrapping.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    public static final long MINOR_PER_MAJOR = 100;
+    public static final long BASIS_POINTS_PER_UNIT = 10_000;
+
+    // Banker's rounding: half-cent ties go to the even cent, so rounding errors cancel out across lines
+    public static final RoundingMode DISCOUNT_ROUNDING = RoundingMode.HALF_EVEN;
+
+    private Money() {
+    }
+
+    // Throws for NaN, infinities and amounts outside the long range instead of saturating like a (long) cast
+    public static long toMinor(double amount) {
+        double scaled = amount * MINOR_PER_MAJOR;
+        double rounded = scaled < 0 ? scaled - 0.5 : scaled + 0.5;
+        // 2^63 is exact as a double; the negated comparison also rejects NaN
+        if (!(rounded >= -0x1p63 && rounded < 0x1p63)) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+        return (long) rounded;
+    }
+
+    public static double toMajor(long minor) {
+        return (double) minor / MINOR_PER_MAJOR;
+    }
+
+    // 12.5 (percent) -> 1250 bps; finer fractions are rounded to the nearest basis point
+    public static long basisPoints(double percent) {
+        return Math.round(percent * 100);
+    }
+
+    public static long times(long minor, int quantity) {
+        return Math.multiplyExact(minor, quantity);
+    }
+
+    /**
+     * {@code bps} basis points of {@code minor}, rounded with {@link #DISCOUNT_ROUNDING}.
+     */
+    public static long percentOf(long minor, long bps) {
+        // divide(..., HALF_EVEN) unrolled for the constant divisor, as it runs once per coupon evaluation
+        long scaled = Math.multiplyExact(minor, bps);
+        if (scaled < 0) {
+            return -percentOf(Math.negateExact(minor), bps);
+        }
+        long quotient = scaled / BASIS_POINTS_PER_UNIT;
+        long remainder = scaled - quotient * BASIS_POINTS_PER_UNIT;
+        if (remainder > BASIS_POINTS_PER_UNIT / 2 || (remainder == BASIS_POINTS_PER_UNIT / 2 && (quotient & 1) != 0)) {
+            quotient++;
+        }
+        return quotient;
+    }
+
+    public static long percentOf(long minor, long bps, RoundingMode mode) {
+        return divide(Math.multiplyExact(minor, bps), BASIS_POINTS_PER_UNIT, mode);
+    }
+
+    /**
+     * {@code numerator / denominator} rounded like {@link java.math.BigDecimal#divide} with the same mode;
+     * {@link RoundingMode#UNNECESSARY} throws when the division is inexact.
+     */
+    public static long divide(long numerator, long denominator, RoundingMode mode) {
+        long quotient = numerator / denominator;
+        long remainder = numerator % denominator;
+        if (remainder == 0) {
+            return quotient;
+        }
+        // Sign of the exact result and how the dropped part compares with one half
+        int signum = (numerator < 0) == (denominator < 0) ? 1 : -1;
+        int half = Long.compare(Math.abs(remainder), Math.abs(denominator) - Math.abs(remainder));
+        boolean awayFromZero = switch (mode) {
+            case UP -> true;
+            case DOWN -> false;
+            case CEILING -> signum > 0;
+            case FLOOR -> signum < 0;
+            case HALF_UP -> half >= 0;
+            case HALF_DOWN -> half > 0;
+            case HALF_EVEN -> half > 0 || (half == 0 && (quotient & 1) != 0);
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary: " + numerator + " / " + denominator);
+        };
+        return awayFromZero ? quotient + signum : quotient;
+    }
+}
@@ -0,0 +1,72 @@
+package com.monkcommerce.coupons.utils;
+
+/**
+ * Sorts without boxing: index arrays ordered by a {@code long} key, which {@link java.util.Arrays}
+ * only offers through {@code Integer[]} and a comparator.
+ */
+public final class PrimitiveSort {
+
+    // Runs up to this length are insertion-sorted before merging
+    private static final int INSERTION_THRESHOLD = 16;
+
+    private PrimitiveSort() {
+    }
+
+    /**
+     * Stably sorts {@code indexes[0..length)} by {@code keys[index]} ascending; equal keys keep their order.
+     */
+    public static void sortIndexes(int[] indexes, int length, long[] keys) {
+        if (length < 2) {
+            return;
+        }
+        if (length <= INSERTION_THRESHOLD) {
+            insertionSort(indexes, 0, length, keys);
+            return;
+        }
+        int[] buffer = new int[length];
+        for (int from = 0; from < length; from += INSERTION_THRESHOLD) {
+            insertionSort(indexes, from, Math.min(from + INSERTION_THRESHOLD, length), keys);
+        }
+        int[] src = indexes;
+        int[] dst = buffer;
+        for (int width = INSERTION_THRESHOLD; width < length; width *= 2) {
+            for (int lo = 0; lo < length; lo += 2 * width) {
+                int mid = Math.min(lo + width, length);
+                int hi = Math.min(lo + 2 * width, length);
+                merge(src, dst, lo, mid, hi, keys);
+            }
+            int[] swap = src;
+            src = dst;
+            dst = swap;
+        }
+        if (src != indexes) {
+            System.arraycopy(src, 0, indexes, 0, length);
+        }
+    }
+
+    private static void insertionSort(int[] a, int from, int to, long[] keys) {
+        for (int i = from + 1; i < to; i++) {
+            int value = a[i];
+            long key = keys[value];
+            int j = i - 1;
+            while (j >= from && keys[a[j]] > key) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    private static void merge(int[] src, int[] dst, int lo, int mid, int hi, long[] keys) {
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            // Taking from the left run on ties keeps the sort stable
+            if (j >= hi || (i < mid && keys[src[i]] <= keys[src[j]])) {
+                dst[k] = src[i++];
+            } else {
+                dst[k] = src[j++];
+            }
+        }
+    }
+}
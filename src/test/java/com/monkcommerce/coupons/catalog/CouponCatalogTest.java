@@ -0,0 +1,302 @@
+package com.monkcommerce.coupons.catalog;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartItem;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import com.monkcommerce.coupons.rule.CartWiseRule;
+import com.monkcommerce.coupons.strategy.BxGyStrategy;
+import com.monkcommerce.coupons.strategy.CartWiseStrategy;
+import com.monkcommerce.coupons.strategy.CouponStrategy;
+import com.monkcommerce.coupons.strategy.ProductWiseStrategy;
+import com.monkcommerce.coupons.strategy.StrategyRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import java.time.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouponCatalogTest {
+    private CouponRepository couponRepository;
+    private CouponCatalog catalog;
+    private MutableClock clock;
+    private CouponProperties properties;
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        couponRepository = Mockito.mock(CouponRepository.class);
+        CouponStrategy custom = Mockito.mock(CouponStrategy.class);
+        Mockito.when(custom.getType()).thenReturn("custom");
+        clock = new MutableClock(Instant.parse("2025-06-01T10:00:00Z"));
+        properties = new CouponProperties();
+        catalog = new CouponCatalog(couponRepository,
+                new StrategyRegistry(List.of(new CartWiseStrategy(), new ProductWiseStrategy(), new BxGyStrategy(), custom), properties),
+                properties, new CouponMetrics(new SimpleMeterRegistry(), properties), clock);
+    }
+
+    private Coupon cartWise(long id, boolean active) {
+        return cartWise(id, active, 100);
+    }
+
+    private Coupon cartWise(long id, boolean active, int threshold) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setType("cart-wise");
+        coupon.setDetails(new HashMap<>(Map.of("threshold", threshold, "discount", 10)));
+        coupon.setActive(active);
+        return coupon;
+    }
+
+    private Coupon coupon(long id, String type, Map<String, Object> details) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setType(type);
+        coupon.setDetails(details);
+        return coupon;
+    }
+
+    @Test
+    void testLoadsOnceAndCompilesRules() {
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(cartWise(1L, true)));
+
+        List<CompiledCoupon> first = catalog.entries();
+        List<CompiledCoupon> second = catalog.entries();
+
+        assertSame(first, second);
+        assertEquals(1, first.size());
+        assertEquals(new CartWiseRule(10_000, 1_000), first.get(0).rule());
+        Mockito.verify(couponRepository, Mockito.times(1)).findActive(Mockito.any());
+    }
+
+    @Test
+    void testSkipsInactiveCoupons() {
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(cartWise(1L, true), cartWise(2L, false)));
+        assertEquals(List.of(1L), catalog.entries().stream().map(CompiledCoupon::id).toList());
+    }
+
+    @Test
+    void testSkipsUnknownTypesAndInvalidDetails() {
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(
+                coupon(1L, "unknown", Map.of()),
+                coupon(2L, "product-wise", Map.of("discount", 10)),
+                cartWise(3L, true)));
+        assertEquals(List.of(3L), catalog.entries().stream().map(CompiledCoupon::id).toList());
+    }
+
+    @Test
+    void testExpiredCouponsAreEvictedWithoutReload() {
+        LocalDateTime now = LocalDateTime.ofInstant(clock.instant(), ZoneId.systemDefault());
+        Coupon expired = cartWise(1L, true);
+        expired.setExpirationDate(now.minusMinutes(1));
+        Coupon expiresSoon = cartWise(2L, true);
+        expiresSoon.setExpirationDate(now.plusMinutes(5));
+        Coupon forever = cartWise(3L, true);
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(expired, expiresSoon, forever));
+
+        assertEquals(List.of(2L, 3L), catalog.entries().stream().map(CompiledCoupon::id).toList());
+
+        clock.advance(Duration.ofMinutes(5));
+        assertEquals(List.of(3L), catalog.entries().stream().map(CompiledCoupon::id).toList());
+        Mockito.verify(couponRepository, Mockito.times(1)).findActive(Mockito.any());
+    }
+
+    @Test
+    void testSweepDeactivatesInStorageWhenEnabled() {
+        properties.getExpiry().setDeactivateInStorage(true);
+        LocalDateTime now = LocalDateTime.ofInstant(clock.instant(), ZoneId.systemDefault());
+        Coupon expiresSoon = cartWise(2L, true);
+        expiresSoon.setExpirationDate(now.plusMinutes(5));
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(expiresSoon, cartWise(3L, true)));
+        catalog.entries();
+
+        clock.advance(Duration.ofMinutes(10));
+        catalog.sweepExpired();
+
+        Mockito.verify(couponRepository).deactivateAll(List.of(2L));
+        assertEquals(List.of(3L), catalog.entries().stream().map(CompiledCoupon::id).toList());
+    }
+
+    @Test
+    void testInvalidateReloads() {
+        Mockito.when(couponRepository.findActive(Mockito.any()))
+                .thenReturn(List.of(cartWise(1L, true)))
+                .thenReturn(List.of(cartWise(1L, true), cartWise(2L, true)));
+
+        assertEquals(1, catalog.entries().size());
+        catalog.invalidate();
+        assertEquals(2, catalog.entries().size());
+        Mockito.verify(couponRepository, Mockito.times(2)).findActive(Mockito.any());
+    }
+
+    @Test
+    void testAddPublishesNewVersionWithoutReload() {
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(cartWise(1L, true, 500)));
+        CatalogSnapshot before = catalog.snapshot();
+
+        catalog.add(coupon(2L, "product-wise", Map.of("product_id", 7, "discount", 10)));
+        catalog.add(cartWise(3L, true, 50));
+        catalog.add(cartWise(4L, false));
+        CatalogSnapshot after = catalog.snapshot();
+
+        // Readers holding the old snapshot are unaffected
+        assertEquals(List.of(1L), before.entries().stream().map(CompiledCoupon::id).toList());
+        assertEquals(before.version() + 2, after.version());
+        assertEquals(List.of(1L, 2L, 3L), after.entries().stream().map(CompiledCoupon::id).toList());
+        Mockito.verify(couponRepository, Mockito.times(1)).findActive(Mockito.any());
+
+        Cart cart = new Cart();
+        cart.setItems(List.of(new CartItem(7L, 1, 100.0, 0.0)));
+        cart.setTotalPrice(100.0);
+        assertEquals(List.of(2L, 3L), after.candidates(CartView.of(cart)).stream().map(CompiledCoupon::id).toList());
+    }
+
+    @Test
+    void testAddMatchesFullBuild() {
+        List<Coupon> coupons = List.of(
+                cartWise(1L, true, 500),
+                coupon(2L, "product-wise", Map.of("product_id", 7, "discount", 10)),
+                cartWise(3L, true, 50),
+                coupon(4L, "bxgy", Map.of(
+                        "buy_products", List.of(Map.of("product_id", 7, "quantity", 1), Map.of("product_id", 9, "quantity", 1)),
+                        "get_products", List.of(Map.of("product_id", 8, "quantity", 1)),
+                        "repetition_limit", 1)),
+                cartWise(5L, true, 500),
+                coupon(6L, "custom", Map.of()),
+                coupon(7L, "product-wise", Map.of("product_id", 8, "discount", 10)));
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of());
+        catalog.snapshot();
+        coupons.forEach(catalog::add);
+        CatalogSnapshot incremental = catalog.snapshot();
+        CatalogSnapshot full = new CatalogSnapshot(0, incremental.entries());
+
+        for (double total : new double[]{40.0, 100.0, 600.0}) {
+            for (long productId : new long[]{7L, 8L, 9L}) {
+                Cart cart = new Cart();
+                cart.setItems(List.of(new CartItem(productId, 1, total, 0.0)));
+                cart.setTotalPrice(total);
+                assertArrayEquals(full.candidatePositions(CartView.of(cart)), incremental.candidatePositions(CartView.of(cart)));
+            }
+        }
+    }
+
+    @Test
+    void testRemovalMatchesFullBuild() {
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(
+                cartWise(1L, true, 500),
+                coupon(2L, "product-wise", Map.of("product_id", 7, "discount", 10)),
+                cartWise(3L, true, 50),
+                coupon(4L, "bxgy", Map.of(
+                        "buy_products", List.of(Map.of("product_id", 7, "quantity", 1)),
+                        "get_products", List.of(Map.of("product_id", 7, "quantity", 1)),
+                        "repetition_limit", 1)),
+                coupon(5L, "custom", Map.of()),
+                coupon(6L, "product-wise", Map.of("product_id", 8, "discount", 10)),
+                cartWise(7L, true, 50),
+                coupon(8L, "product-wise", Map.of("product_id", 7, "discount", 5))));
+        CatalogSnapshot loaded = catalog.snapshot();
+        // Two of eight positions left empty stays below the compaction threshold
+        CatalogSnapshot removed = loaded.with(List.of(), Set.of(3L, 4L));
+        CatalogSnapshot full = new CatalogSnapshot(0, removed.entries());
+
+        assertEquals(List.of(1L, 2L, 5L, 6L, 7L, 8L), removed.entries().stream().map(CompiledCoupon::id).toList());
+        assertEquals(6, removed.size());
+        assertNull(removed.find(4L));
+        for (double total : new double[]{40.0, 100.0, 600.0}) {
+            for (long productId : new long[]{7L, 8L, 9L}) {
+                Cart cart = new Cart();
+                cart.setItems(List.of(new CartItem(productId, 1, total, 0.0)));
+                cart.setTotalPrice(total);
+                assertEquals(full.candidates(CartView.of(cart)), removed.candidates(CartView.of(cart)));
+            }
+        }
+        List<Long> visited = new ArrayList<>();
+        removed.forEachProductPosition(7L, position -> visited.add(removed.entry(position).id()));
+        assertEquals(List.of(2L, 8L), visited);
+
+        // Past a quarter of empty positions the next version is rebuilt without them
+        CatalogSnapshot compacted = removed.with(List.of(), Set.of(1L));
+        assertEquals(5, compacted.entries().size());
+        assertEquals(List.of(2L, 5L, 6L, 7L, 8L), compacted.entries().stream().map(CompiledCoupon::id).toList());
+    }
+
+    @Test
+    void testStaleSnapshotHidesExpiredEntries() {
+        LocalDateTime now = LocalDateTime.ofInstant(clock.instant(), ZoneId.systemDefault());
+        Coupon expiresSoon = coupon(1L, "product-wise", Map.of("product_id", 7, "discount", 10));
+        expiresSoon.setExpirationDate(now.plusMinutes(5));
+        Coupon forever = coupon(2L, "product-wise", Map.of("product_id", 7, "discount", 5));
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(expiresSoon, forever));
+        CatalogSnapshot loaded = catalog.snapshot();
+
+        CatalogSnapshot stale = loaded.hidingExpired(clock.millis() + Duration.ofMinutes(5).toMillis());
+        assertTrue(stale.hidesExpired());
+        assertFalse(loaded.hidesExpired());
+        assertEquals(loaded.version(), stale.version());
+        assertNull(stale.find(1L));
+        assertEquals(List.of(2L), stale.entries().stream().map(CompiledCoupon::id).toList());
+        Cart cart = new Cart();
+        cart.setItems(List.of(new CartItem(7L, 1, 100.0, 0.0)));
+        cart.setTotalPrice(100.0);
+        assertEquals(List.of(2L), stale.candidates(CartView.of(cart)).stream().map(CompiledCoupon::id).toList());
+        List<Long> visited = new ArrayList<>();
+        stale.forEachProductPosition(7L, position -> visited.add(stale.entry(position).id()));
+        assertEquals(List.of(2L), visited);
+
+        // Before the first expiry nothing is hidden
+        assertNotNull(loaded.hidingExpired(clock.millis()).find(1L));
+    }
+
+    @Test
+    void testCandidatesUseProductIndexAndThresholds() {
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(
+                cartWise(1L, true, 500),
+                coupon(2L, "product-wise", Map.of("product_id", 7, "discount", 10)),
+                coupon(3L, "product-wise", Map.of("product_id", 8, "discount", 10)),
+                coupon(4L, "bxgy", Map.of(
+                        "buy_products", List.of(Map.of("product_id", 7, "quantity", 1), Map.of("product_id", 9, "quantity", 1)),
+                        "get_products", List.of(Map.of("product_id", 8, "quantity", 1)),
+                        "repetition_limit", 1)),
+                cartWise(5L, true, 50),
+                coupon(6L, "custom", Map.of())));
+
+        Cart cart = new Cart();
+        cart.setItems(List.of(new CartItem(7L, 1, 60.0, 0.0), new CartItem(9L, 1, 40.0, 0.0)));
+        cart.setTotalPrice(100.0);
+
+        List<Long> ids = catalog.snapshot().candidates(CartView.of(cart)).stream().map(CompiledCoupon::id).toList();
+        // 2 via product 7, 4 via products 7 and 9 (once), 5 via threshold, 6 is unindexed
+        assertEquals(List.of(2L, 4L, 5L, 6L), ids);
+    }
+}
@@ -1,23 +1,34 @@
 package com.monkcommerce.coupons.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommerce.coupons.exception.BatchTooLargeException;
 import com.monkcommerce.coupons.model.Cart;
 import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponFilter;
+import com.monkcommerce.coupons.model.CouponPage;
+import com.monkcommerce.coupons.service.CouponImportService;
+import com.monkcommerce.coupons.service.CouponQueryService;
 import com.monkcommerce.coupons.service.CouponService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.http.ResponseEntity;
+import java.io.ByteArrayOutputStream;
 import java.util.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 class CouponControllerTest {
     private CouponService couponService;
+    private CouponQueryService couponQueryService;
     private CouponController controller;
 
     @BeforeEach
     void setUp() {
         couponService = Mockito.mock(CouponService.class);
-        controller = new CouponController(couponService);
+        couponQueryService = Mockito.mock(CouponQueryService.class);
+        controller = new CouponController(couponService, Mockito.mock(CouponImportService.class), couponQueryService,
+                new ObjectMapper());
     }
 
     @Test
@@ -36,9 +47,9 @@ class CouponControllerTest {
 
     @Test
     void testGetAllCoupons() {
-        List<Coupon> coupons = List.of(new Coupon(), new Coupon());
-        Mockito.when(couponService.getAllCoupons()).thenReturn(coupons);
-        assertEquals(coupons, controller.getAllCoupons());
+        CouponPage page = new CouponPage(List.of(new Coupon(), new Coupon()), 2L);
+        Mockito.when(couponQueryService.listCoupons(new CouponFilter("bxgy", true, null, null), null, 2)).thenReturn(page);
+        assertEquals(page, controller.getAllCoupons("bxgy", true, null, null, null, 2));
     }
 
     @Test
@@ -49,6 +60,29 @@ class CouponControllerTest {
         assertEquals(coupon, controller.getCoupon(1L));
     }
 
+    @Test
+    void testBatchFailureMidStreamEndsWithErrorField() throws Exception {
+        List<Cart> carts = List.of(new Cart(), new Cart());
+        Mockito.when(couponService.getApplicableCouponsBatch(carts)).thenReturn(sink -> {
+            sink.accept(0, List.of());
+            throw new IllegalStateException("boom");
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        controller.getApplicableCouponsBatch(carts).getBody().writeTo(out);
+
+        JsonNode body = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals(1, body.get("results").size());
+        assertTrue(body.has("error"));
+        assertFalse(body.has("catalog_version"));
+    }
+
+    @Test
+    void testOversizedBatchFailsBeforeStreaming() {
+        List<Cart> carts = List.of(new Cart());
+        Mockito.when(couponService.getApplicableCouponsBatch(carts)).thenThrow(new BatchTooLargeException("too many"));
+        assertThrows(BatchTooLargeException.class, () -> controller.getApplicableCouponsBatch(carts));
+    }
+
     @Test
     void testGetApplicableCoupons() {
         Cart cart = new Cart();
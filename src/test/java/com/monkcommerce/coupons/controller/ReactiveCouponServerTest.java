@@ -0,0 +1,76 @@
+package com.monkcommerce.coupons.controller;
+
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.service.CouponService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import java.util.*;
+
+@SpringBootTest(properties = {"coupons.reactive.enabled=true", "coupons.reactive.port=0"})
+class ReactiveCouponServerTest {
+    @Autowired
+    private ReactiveCouponServer server;
+    @Autowired
+    private CouponService couponService;
+
+    private WebTestClient client;
+    private Coupon coupon;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + server.port()).build();
+        Coupon cartWise = new Coupon();
+        cartWise.setType("cart-wise");
+        cartWise.setDetails(Map.of("threshold", 50, "discount", 10));
+        coupon = couponService.createCoupon(cartWise);
+    }
+
+    private static Map<String, Object> cart() {
+        return Map.of("totalPrice", 100, "items", List.of(Map.of("productId", 1, "quantity", 2, "price", 50)));
+    }
+
+    @Test
+    void testApplicableCoupons() {
+        client.post().uri("/applicable-coupons").contentType(MediaType.APPLICATION_JSON).bodyValue(cart())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.applicable_coupons[?(@.coupon_id == " + coupon.getId() + ")].discount").isEqualTo(10.0)
+                .jsonPath("$.catalog_version").isNumber();
+    }
+
+    @Test
+    void testApplyCoupon() {
+        // The first apply reads the redemption counter from storage off the event loop; the second is served from memory
+        for (int i = 0; i < 2; i++) {
+            client.post().uri("/apply-coupon/" + coupon.getId()).contentType(MediaType.APPLICATION_JSON).bodyValue(cart())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.updated_cart.totalDiscount").isEqualTo(10.0)
+                    .jsonPath("$.updated_cart.finalPrice").isEqualTo(90.0);
+        }
+    }
+
+    @Test
+    void testErrorsMatchServletEndpoints() {
+        client.post().uri("/apply-coupon/999999").contentType(MediaType.APPLICATION_JSON).bodyValue(cart())
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.error").isEqualTo("Not Found");
+        client.post().uri("/apply-coupon/abc").contentType(MediaType.APPLICATION_JSON).bodyValue(cart())
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.post().uri("/applicable-coupons").contentType(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Bad Request");
+    }
+}
@@ -0,0 +1,66 @@
+package com.monkcommerce.coupons.model;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartViewTest {
+
+    @Test
+    void testProductTotalsAggregateLinesPerProduct() {
+        Cart cart = new Cart();
+        cart.setItems(new ArrayList<>(Arrays.asList(
+                new CartItem(7L, 2, 1.25, 0.0),
+                new CartItem(null, 5, 9.99, 0.0),
+                new CartItem(3L, 1, 4.0, 0.0),
+                null,
+                new CartItem(7L, 3, 2.0, 0.0))));
+
+        CartView.ProductTotals totals = CartView.of(cart).productTotals();
+        assertEquals(2, totals.size());
+        // First appearance order
+        assertEquals(7L, totals.productId(0));
+        assertEquals(3L, totals.productId(1));
+        assertEquals(5, totals.quantityOf(7L));
+        assertEquals(850, totals.subtotalOf(7L));
+        assertEquals(400, totals.subtotal(1));
+        assertFalse(totals.contains(4L));
+        assertEquals(-1, totals.indexOf(4L));
+        assertEquals(0, totals.quantityOf(4L));
+        assertEquals(0, totals.subtotalOf(4L));
+
+        assertEquals(0, CartView.of(new Cart()).productTotals().size());
+        assertFalse(CartView.of(null).productTotals().contains(0L));
+    }
+
+    @Test
+    void testProductTotalsMatchHashMapAggregation() {
+        Random random = new Random(22);
+        for (int round = 0; round < 200; round++) {
+            List<CartItem> items = new ArrayList<>();
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            int lines = random.nextInt(300);
+            for (int i = 0; i < lines; i++) {
+                // Ids clustered on a stride and negative ids exercise probing past collisions
+                long productId = random.nextBoolean() ? random.nextInt(40) * 1024L : -random.nextInt(1_000);
+                int quantity = 1 + random.nextInt(5);
+                items.add(new CartItem(productId, quantity, 1.0, 0.0));
+                quantities.merge(productId, quantity, Integer::sum);
+            }
+            Cart cart = new Cart();
+            cart.setItems(items);
+
+            CartView.ProductTotals totals = CartView.of(cart).productTotals();
+            assertEquals(quantities.size(), totals.size());
+            int index = 0;
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                assertEquals(entry.getKey(), totals.productId(index));
+                assertEquals(entry.getValue(), totals.quantity(index));
+                assertEquals(index, totals.indexOf(entry.getKey()));
+                assertEquals(entry.getValue() * 100L, totals.subtotalOf(entry.getKey()));
+                index++;
+            }
+            assertFalse(totals.contains(Long.MAX_VALUE));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.monkcommerce.coupons.repository;
+
+import com.monkcommerce.coupons.model.CouponRedemption;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CouponRedemptionRepositoryTest {
+    @Autowired
+    private CouponRedemptionRepository redemptionRepository;
+
+    private static CouponRedemption delta(long couponId, String userId, long count) {
+        CouponRedemption row = new CouponRedemption(couponId, userId);
+        row.setCount(count);
+        return row;
+    }
+
+    @Test
+    void testAddCountsInsertsThenIncrements() {
+        redemptionRepository.addCounts(List.of(delta(900L, "alice", 2), delta(900L, "bob", 1)));
+        redemptionRepository.addCounts(List.of(delta(900L, "alice", 3)));
+
+        assertEquals(5, redemptionRepository.findByCouponIdAndUserId(900L, "alice").orElseThrow().getCount());
+        assertEquals(1, redemptionRepository.findByCouponIdAndUserId(900L, "bob").orElseThrow().getCount());
+    }
+}
@@ -0,0 +1,63 @@
+package com.monkcommerce.coupons.repository;
+
+import com.monkcommerce.coupons.model.Coupon;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CouponSecondLevelCacheTest {
+    @Autowired
+    private CouponRepository couponRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Coupon saveCoupon() {
+        Coupon coupon = new Coupon();
+        coupon.setType("cart-wise");
+        coupon.setDetails(Map.of("threshold", 100, "discount", 10));
+        return couponRepository.save(coupon);
+    }
+
+    @Test
+    void testFindByIdIsServedFromCache() {
+        Long id = saveCoupon().getId();
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(couponRepository.findById(id).isPresent());
+        }
+        assertEquals(3, stats.getSecondLevelCacheHitCount());
+        assertEquals(0, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void testWriteUpdatesCachedEntry() {
+        Coupon coupon = saveCoupon();
+        coupon.setActive(false);
+        couponRepository.save(coupon);
+        assertFalse(couponRepository.findById(coupon.getId()).orElseThrow().isActive());
+    }
+
+    @Test
+    void testRedemptionFlushEvictsOnlyItsCoupons() {
+        Long flushed = saveCoupon().getId();
+        Long other = saveCoupon().getId();
+        couponRepository.findById(flushed);
+        couponRepository.findById(other);
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        couponRepository.addRedemptions(Map.of(flushed, 3L));
+        stats.clear();
+        assertTrue(couponRepository.findById(other).isPresent());
+        assertEquals(1, stats.getSecondLevelCacheHitCount());
+        assertEquals(3, couponRepository.findById(flushed).orElseThrow().getRedemptionCount());
+        assertEquals(Optional.of(3L), couponRepository.findRedemptionCount(flushed));
+    }
+}
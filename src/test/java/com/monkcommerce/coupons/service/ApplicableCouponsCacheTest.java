@@ -0,0 +1,98 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.catalog.CatalogSnapshot;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
+import com.monkcommerce.coupons.model.ApplicableCoupon;
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartItem;
+import com.monkcommerce.coupons.model.CartView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApplicableCouponsCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ApplicableCouponsCache cache;
+    private AtomicInteger evaluations;
+
+    @BeforeEach
+    void setUp() {
+        CouponProperties properties = new CouponProperties();
+        properties.getResultCache().setEnabled(true);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ApplicableCouponsCache(properties, new CouponMetrics(meterRegistry, properties));
+        evaluations = new AtomicInteger();
+    }
+
+    private static Cart cart(CartItem... items) {
+        Cart cart = new Cart();
+        cart.setItems(new ArrayList<>(List.of(items)));
+        cart.setTotalPrice(items.length * 10.0);
+        return cart;
+    }
+
+    private static CatalogSnapshot snapshot(long version) {
+        CatalogSnapshot snapshot = Mockito.mock(CatalogSnapshot.class);
+        Mockito.when(snapshot.version()).thenReturn(version);
+        return snapshot;
+    }
+
+    private Supplier<List<ApplicableCoupon>> evaluate() {
+        return () -> List.of(new ApplicableCoupon((long) evaluations.incrementAndGet(), "cart-wise", 1.0));
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "coupons.applicable").tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    void testIdenticalCartsAreServedFromCache() {
+        CatalogSnapshot snapshot = snapshot(1);
+        List<ApplicableCoupon> first = cache.get(snapshot, CartView.of(cart(new CartItem(1L, 2, 10.0, 0.0))), evaluate());
+        // A different cart instance with the same lines hits
+        List<ApplicableCoupon> second = cache.get(snapshot, CartView.of(cart(new CartItem(1L, 2, 10.0, 0.0))), evaluate());
+        assertSame(first, second);
+        assertEquals(1, evaluations.get());
+
+        // Quantity, price and line order are all part of the key
+        cache.get(snapshot, CartView.of(cart(new CartItem(1L, 3, 10.0, 0.0))), evaluate());
+        cache.get(snapshot, CartView.of(cart(new CartItem(1L, 2, 10.01, 0.0))), evaluate());
+        cache.get(snapshot, CartView.of(cart(new CartItem(1L, 1, 5.0, 0.0), new CartItem(2L, 1, 7.0, 0.0))), evaluate());
+        cache.get(snapshot, CartView.of(cart(new CartItem(2L, 1, 7.0, 0.0), new CartItem(1L, 1, 5.0, 0.0))), evaluate());
+        assertEquals(5, evaluations.get());
+
+        assertEquals(1, gets("hit"));
+        assertEquals(5, gets("miss"));
+    }
+
+    @Test
+    void testNewCatalogVersionInvalidates() {
+        Cart cart = cart(new CartItem(1L, 2, 10.0, 0.0));
+        cache.get(snapshot(1), CartView.of(cart), evaluate());
+        cache.get(snapshot(2), CartView.of(cart), evaluate());
+        assertEquals(2, evaluations.get());
+
+        // A late request on the old snapshot does not flush the newer entries
+        cache.get(snapshot(1), CartView.of(cart), evaluate());
+        cache.get(snapshot(2), CartView.of(cart), evaluate());
+        assertEquals(3, evaluations.get());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysEvaluates() {
+        CouponProperties properties = new CouponProperties();
+        ApplicableCouponsCache disabled = new ApplicableCouponsCache(properties, new CouponMetrics(new SimpleMeterRegistry(), properties));
+        assertFalse(disabled.isEnabled());
+        Cart cart = cart(new CartItem(1L, 2, 10.0, 0.0));
+        disabled.get(snapshot(1), CartView.of(cart), evaluate());
+        disabled.get(snapshot(1), CartView.of(cart), evaluate());
+        assertEquals(2, evaluations.get());
+    }
+}
@@ -0,0 +1,238 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.catalog.CatalogSnapshot;
+import com.monkcommerce.coupons.catalog.CouponCatalog;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.exception.ResourceNotFoundException;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
+import com.monkcommerce.coupons.model.ApplicableCoupon;
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartItem;
+import com.monkcommerce.coupons.model.CartItemDelta;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import com.monkcommerce.coupons.strategy.BxGyStrategy;
+import com.monkcommerce.coupons.strategy.CartWiseStrategy;
+import com.monkcommerce.coupons.strategy.ProductWiseStrategy;
+import com.monkcommerce.coupons.strategy.StrategyRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import java.time.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartSessionServiceTest {
+    private CouponRepository couponRepository;
+    private CouponCatalog catalog;
+    private CouponEvaluator evaluator;
+    private CouponProperties properties;
+    private Instant now = Instant.parse("2025-06-01T10:00:00Z");
+    private CartSessionService service;
+
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        couponRepository = Mockito.mock(CouponRepository.class);
+        properties = new CouponProperties();
+        CouponMetrics metrics = new CouponMetrics(new SimpleMeterRegistry(), properties);
+        catalog = new CouponCatalog(couponRepository,
+                new StrategyRegistry(List.of(new CartWiseStrategy(), new ProductWiseStrategy(), new BxGyStrategy()), properties),
+                properties, metrics);
+        evaluator = new CouponEvaluator(properties, metrics);
+        service = new CartSessionService(catalog, evaluator, properties, clock);
+    }
+
+    private static Coupon coupon(long id, String type, Map<String, Object> details) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setType(type);
+        coupon.setDetails(details);
+        return coupon;
+    }
+
+    private static Map<String, Object> line(long productId, int quantity) {
+        return Map.of("product_id", productId, "quantity", quantity);
+    }
+
+    // Mixed catalog over products 1..20
+    private List<Coupon> catalogCoupons(Random random) {
+        return catalogCoupons(random, "cart_order");
+    }
+
+    private List<Coupon> catalogCoupons(Random random, String rewardAllocation) {
+        List<Coupon> coupons = new ArrayList<>();
+        for (long id = 1; id <= 60; id++) {
+            switch ((int) (id % 3)) {
+                case 0 -> coupons.add(coupon(id, "cart-wise",
+                        Map.of("threshold", random.nextInt(400), "discount", 5 + random.nextInt(20))));
+                case 1 -> coupons.add(coupon(id, "product-wise",
+                        Map.of("product_id", 1 + random.nextInt(20), "discount", 5 + random.nextInt(20))));
+                default -> coupons.add(coupon(id, "bxgy", Map.of(
+                        "buy_products", List.of(line(1 + random.nextInt(20), 1 + random.nextInt(2))),
+                        "get_products", List.of(line(1 + random.nextInt(20), 1)),
+                        "repetition_limit", 1 + random.nextInt(3),
+                        "reward_allocation", rewardAllocation)));
+            }
+        }
+        return coupons;
+    }
+
+    private List<ApplicableCoupon> fullEvaluation(Cart cart) {
+        CartView view = CartView.of(cart);
+        CatalogSnapshot snapshot = catalog.snapshot();
+        return evaluator.evaluate(snapshot.candidates(view), view);
+    }
+
+    @Test
+    void testIncrementalMatchesFullEvaluation() {
+        Random random = new Random(42);
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(catalogCoupons(random));
+        assertIncrementalMatchesFullEvaluation(random);
+    }
+
+    @Test
+    void testIncrementalMatchesFullEvaluationWithPriceOrderedRewards() {
+        Random random = new Random(7);
+        List<Coupon> coupons = catalogCoupons(random, "cheapest_first");
+        coupons.addAll(catalogCoupons(random, "most_expensive_first").stream()
+                .peek(coupon -> coupon.setId(coupon.getId() + 100)).toList());
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(coupons);
+        assertIncrementalMatchesFullEvaluation(random);
+    }
+
+    private void assertIncrementalMatchesFullEvaluation(Random random) {
+        Cart cart = new Cart();
+        cart.setItems(new ArrayList<>(List.of(new CartItem(1L, 2, 50.0, 0.0))));
+        cart.setTotalPrice(100.0);
+        assertEquals(fullEvaluation(cart), service.open("c1", cart));
+
+        // Mirror of the session cart, maintained with the same delta rules
+        Map<Long, int[]> quantities = new LinkedHashMap<>();
+        quantities.put(1L, new int[]{2});
+        // A re-added line takes the price of the delta that creates it
+        Map<Long, Double> prices = new HashMap<>(Map.of(1L, 50.0));
+        double total = 100.0;
+        for (int step = 0; step < 300; step++) {
+            long productId = 1 + random.nextInt(20);
+            int delta = random.nextInt(7) - 3;
+            double price = 10.0 + productId;
+            List<ApplicableCoupon> incremental = service.update("c1", List.of(new CartItemDelta(productId, delta, price)));
+
+            int[] held = quantities.get(productId);
+            int applied = held == null ? Math.max(delta, 0) : Math.max(delta, -held[0]);
+            if (held == null && applied > 0) {
+                quantities.put(productId, new int[]{applied});
+                prices.put(productId, price);
+            } else if (held != null) {
+                held[0] += applied;
+                if (held[0] == 0) {
+                    quantities.remove(productId);
+                }
+            }
+            total += applied * prices.getOrDefault(productId, price);
+
+            Cart expected = new Cart();
+            List<CartItem> items = new ArrayList<>();
+            quantities.forEach((id, q) -> items.add(new CartItem(id, q[0], prices.get(id), 0.0)));
+            expected.setItems(items);
+            expected.setTotalPrice(total);
+            assertEquals(fullEvaluation(expected), incremental, "step " + step);
+        }
+    }
+
+    @Test
+    void testBuyAndGetSameProduct() {
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(coupon(1L, "bxgy", Map.of(
+                "buy_products", List.of(line(5, 2)),
+                "get_products", List.of(line(5, 1)),
+                "repetition_limit", 10))));
+        Cart cart = new Cart();
+        cart.setItems(new ArrayList<>(List.of(new CartItem(5L, 2, 10.0, 0.0))));
+        cart.setTotalPrice(20.0);
+        service.open("c1", cart);
+
+        List<ApplicableCoupon> incremental = service.update("c1", List.of(new CartItemDelta(5L, 2, 10.0)));
+
+        Cart expected = new Cart();
+        expected.setItems(List.of(new CartItem(5L, 4, 10.0, 0.0)));
+        expected.setTotalPrice(40.0);
+        assertEquals(fullEvaluation(expected), incremental);
+        assertEquals(20.0, incremental.get(0).discount());
+    }
+
+    @Test
+    void testRemovalSpansEveryLineOfTheProduct() {
+        Mockito.when(couponRepository.findActive(Mockito.any()))
+                .thenReturn(List.of(coupon(1L, "product-wise", Map.of("product_id", 3, "discount", 10))));
+        Cart cart = new Cart();
+        cart.setItems(new ArrayList<>(List.of(new CartItem(3L, 1, 10.0, 0.0), new CartItem(3L, 2, 10.0, 0.0))));
+        cart.setTotalPrice(30.0);
+        assertEquals(1, service.open("c1", cart).size());
+
+        assertTrue(service.update("c1", List.of(new CartItemDelta(3L, -5, 10.0))).isEmpty());
+        // Nothing left to remove from, and a re-add starts a fresh line
+        List<ApplicableCoupon> readded = service.update("c1", List.of(new CartItemDelta(3L, 1, 10.0)));
+        assertEquals(1.0, readded.get(0).discount());
+    }
+
+    @Test
+    void testCatalogChangeTriggersFullEvaluation() {
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of());
+        Cart cart = new Cart();
+        cart.setTotalPrice(200.0);
+        assertTrue(service.open("c1", cart).isEmpty());
+
+        Mockito.when(couponRepository.findActive(Mockito.any()))
+                .thenReturn(List.of(coupon(7L, "cart-wise", Map.of("threshold", 100, "discount", 10))));
+        catalog.invalidate();
+        List<ApplicableCoupon> result = service.update("c1", List.of());
+        assertEquals(List.of(7L), result.stream().map(ApplicableCoupon::couponId).toList());
+    }
+
+    @Test
+    void testUnknownSession() {
+        assertThrows(ResourceNotFoundException.class, () -> service.update("missing", List.of()));
+    }
+
+    @Test
+    void testIdleAndCapacityEviction() {
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of());
+        properties.getSession().setMaxSessions(2);
+        properties.getSession().setIdleTimeoutMs(1000);
+        service = new CartSessionService(catalog, evaluator, properties, clock);
+
+        service.open("a", new Cart());
+        now = now.plusMillis(10);
+        service.open("b", new Cart());
+        now = now.plusMillis(10);
+        service.open("c", new Cart());
+        // Caffeine picks the victim by recency and frequency; the session just opened is kept
+        assertEquals(2, service.size());
+        assertDoesNotThrow(() -> service.update("c", List.of()));
+
+        now = now.plusMillis(995);
+        service.update("c", List.of());
+        service.evictIdle();
+        assertEquals(1, service.size());
+        assertDoesNotThrow(() -> service.update("c", List.of()));
+    }
+}
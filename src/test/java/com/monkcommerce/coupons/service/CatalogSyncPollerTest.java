@@ -0,0 +1,165 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.CouponApplication;
+import com.monkcommerce.coupons.catalog.CatalogSnapshot;
+import com.monkcommerce.coupons.catalog.CompiledCoupon;
+import com.monkcommerce.coupons.catalog.CouponCatalog;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponChange;
+import com.monkcommerce.coupons.repository.CouponChangeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.nio.file.Path;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two application contexts, standing in for two instances, sharing one H2 file database
+class CatalogSyncPollerTest {
+    @TempDir
+    Path dir;
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    private ConfigurableApplicationContext run(String... args) {
+        List<String> all = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:file:" + dir.resolve("coupons") + ";DB_CLOSE_ON_EXIT=FALSE",
+                // Real instances do not share a second-level cache, and closing a context would close the
+                // JVM-wide JCache manager under every other context of the test run
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false"));
+        all.addAll(List.of(args));
+        return new SpringApplicationBuilder(CouponApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(all.toArray(String[]::new));
+    }
+
+    private ConfigurableApplicationContext start() {
+        ConfigurableApplicationContext context = run("--coupons.sync.enabled=true",
+                        // Polls are driven by the test
+                        "--coupons.sync.poll-interval-ms=3600000",
+                        // A gap still missing on the next poll is dropped
+                        "--coupons.sync.gap-grace-ms=0");
+        // Baseline
+        context.getBean(CatalogSyncPoller.class).poll();
+        return context;
+    }
+
+    @BeforeEach
+    void setUp() {
+        first = start();
+        second = start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        second.close();
+        first.close();
+    }
+
+    private static Coupon cartWise(int threshold) {
+        Coupon coupon = new Coupon();
+        coupon.setType("cart-wise");
+        coupon.setDetails(Map.of("threshold", threshold, "discount", 10));
+        return coupon;
+    }
+
+    private static List<Long> ids(CatalogSnapshot snapshot) {
+        return snapshot.entries().stream().map(CompiledCoupon::id).toList();
+    }
+
+    private static double count(ConfigurableApplicationContext context, String meter) {
+        return context.getBean(MeterRegistry.class).get(meter).counter().count();
+    }
+
+    @Test
+    void testChangesAreAppliedIncrementally() {
+        CouponCatalog catalog = second.getBean(CouponCatalog.class);
+        CatalogSnapshot before = catalog.snapshot();
+        MeterRegistry registry = second.getBean(MeterRegistry.class);
+        long loads = registry.get("coupons.catalog.load").timer().count();
+
+        Coupon created = first.getBean(CouponService.class).createCoupon(cartWise(100));
+        assertEquals(ids(before), ids(catalog.snapshot()));
+
+        second.getBean(CatalogSyncPoller.class).poll();
+        CatalogSnapshot after = catalog.snapshot();
+        assertTrue(ids(after).contains(created.getId()));
+        assertTrue(after.version() > before.version());
+        assertEquals(loads, registry.get("coupons.catalog.load").timer().count());
+        assertEquals(1, count(second, "coupons.catalog.sync.changes"));
+
+        // The writer sees its own change on the poll without rebuilding its snapshot
+        CouponCatalog writerCatalog = first.getBean(CouponCatalog.class);
+        CatalogSnapshot written = writerCatalog.snapshot();
+        first.getBean(CatalogSyncPoller.class).poll();
+        assertSame(written, writerCatalog.snapshot());
+    }
+
+    @Test
+    void testTruncatedLogTriggersFullReload() {
+        CouponCatalog catalog = second.getBean(CouponCatalog.class);
+        catalog.snapshot();
+        CouponService writer = first.getBean(CouponService.class);
+        writer.createCoupon(cartWise(100));
+        second.getBean(CatalogSyncPoller.class).poll();
+        double resyncs = count(second, "coupons.catalog.sync.resyncs");
+
+        Coupon created = writer.createCoupon(cartWise(200));
+        // As if the log had been cleared: the head is now behind what this instance has seen
+        first.getBean(CouponChangeRepository.class).deleteAll();
+
+        second.getBean(CatalogSyncPoller.class).poll();
+        assertTrue(ids(catalog.snapshot()).contains(created.getId()));
+        assertEquals(resyncs + 1, count(second, "coupons.catalog.sync.resyncs"));
+    }
+
+    @Test
+    void testLateCommitsAreWaitedFor() {
+        CouponCatalog catalog = second.getBean(CouponCatalog.class);
+        catalog.snapshot();
+        double resyncs = count(second, "coupons.catalog.sync.resyncs");
+        CouponService writer = first.getBean(CouponService.class);
+        CouponChangeRepository changes = first.getBean(CouponChangeRepository.class);
+
+        Coupon late = writer.createCoupon(cartWise(300));
+        Coupon rolledBack = writer.createCoupon(cartWise(400));
+        Coupon applied = writer.createCoupon(cartWise(500));
+        // The first two entries are not visible yet, as if their transactions had not committed
+        List<CouponChange> entries = changes.findAll();
+        CouponChange lateEntry = entries.stream().filter(c -> c.getCouponId().equals(late.getId())).findFirst().orElseThrow();
+        changes.deleteAll(entries.stream().filter(c -> !c.getCouponId().equals(applied.getId())).toList());
+
+        CatalogSyncPoller poller = second.getBean(CatalogSyncPoller.class);
+        poller.poll();
+        assertTrue(ids(catalog.snapshot()).contains(applied.getId()));
+        assertFalse(ids(catalog.snapshot()).contains(late.getId()));
+
+        first.getBean(JdbcTemplate.class).update("insert into coupon_changes (seq, coupon_id, changed_at) values (?, ?, ?)",
+                lateEntry.getSeq(), lateEntry.getCouponId(), lateEntry.getChangedAt());
+        poller.poll();
+        assertTrue(ids(catalog.snapshot()).contains(late.getId()));
+        // Never committed within the grace period, so it was dropped rather than reloaded
+        assertFalse(ids(catalog.snapshot()).contains(rolledBack.getId()));
+        assertEquals(resyncs, count(second, "coupons.catalog.sync.resyncs"));
+        assertEquals(2, count(second, "coupons.catalog.sync.changes"));
+    }
+
+    @Test
+    void testNothingIsRecordedWhenSyncIsDisabled() {
+        ConfigurableApplicationContext standalone = run();
+        try {
+            CouponChangeRepository changes = standalone.getBean(CouponChangeRepository.class);
+            long before = changes.count();
+            standalone.getBean(CouponService.class).createCoupon(cartWise(600));
+            assertEquals(before, changes.count());
+        } finally {
+            standalone.close();
+        }
+    }
+}
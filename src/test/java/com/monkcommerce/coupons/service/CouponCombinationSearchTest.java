@@ -0,0 +1,95 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.model.ApplicableCoupon;
+import com.monkcommerce.coupons.model.BestCombination;
+import com.monkcommerce.coupons.rule.BxGyRule;
+import com.monkcommerce.coupons.rule.CartWiseRule;
+import com.monkcommerce.coupons.rule.CouponRule;
+import com.monkcommerce.coupons.rule.ProductWiseRule;
+import com.monkcommerce.coupons.rule.RewardAllocation;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouponCombinationSearchTest {
+
+    @Test
+    void testPicksBestStackableSet() {
+        List<ApplicableCoupon> applicable = List.of(
+                new ApplicableCoupon(1L, "cart-wise", 50.0),
+                new ApplicableCoupon(2L, "product-wise", 30.0),
+                new ApplicableCoupon(3L, "product-wise", 25.0),
+                new ApplicableCoupon(4L, "product-wise", 10.0));
+        List<CouponRule> rules = List.of(
+                new CartWiseRule(10_000, 1_000),
+                new ProductWiseRule(7L, 1_000),
+                new ProductWiseRule(8L, 1_000),
+                // Same product as coupon 2, so it can't stack with it
+                new ProductWiseRule(7L, 500));
+
+        BestCombination best = new CouponCombinationSearch(10_000, 64, 1_000).search(applicable, rules, 50_000);
+
+        // 30 + 25 beats the cart-wise 50 on its own
+        assertEquals(List.of(2L, 3L), best.coupons().stream().map(ApplicableCoupon::couponId).toList());
+        assertEquals(55.0, best.totalDiscount());
+        assertTrue(best.exhaustive());
+    }
+
+    @Test
+    void testBudgetReturnsBestSoFar() {
+        List<ApplicableCoupon> applicable = new ArrayList<>();
+        List<CouponRule> rules = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            applicable.add(new ApplicableCoupon((long) i, "product-wise", 40 - i));
+            rules.add(new ProductWiseRule(i / 2, 1_000));
+        }
+
+        BestCombination best = new CouponCombinationSearch(5, 64, 1_000).search(applicable, rules, 1_000_000);
+
+        assertFalse(best.exhaustive());
+        assertFalse(best.coupons().isEmpty());
+    }
+
+    @Test
+    void testOnlyTopCandidatesAreSearched() {
+        List<ApplicableCoupon> applicable = new ArrayList<>();
+        List<CouponRule> rules = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            applicable.add(new ApplicableCoupon((long) i, "product-wise", 1 + i % 100));
+            rules.add(new ProductWiseRule(i, 1_000));
+        }
+
+        BestCombination best = new CouponCombinationSearch(100_000, 8, 1_000).search(applicable, rules, Long.MAX_VALUE);
+
+        // The 8 largest discounts (100 each) stack on distinct products
+        assertEquals(8, best.coupons().size());
+        assertEquals(800.0, best.totalDiscount());
+        assertFalse(best.exhaustive());
+    }
+
+    private static BxGyRule buyOneGetOne(long buy, long get) {
+        return new BxGyRule(new long[]{buy}, new int[]{1}, new long[]{get}, new int[]{1}, 1, RewardAllocation.CART_ORDER);
+    }
+
+    @Test
+    void testBxGyBuyProductsConflict() {
+        List<ApplicableCoupon> applicable = List.of(
+                new ApplicableCoupon(1L, "bxgy", 20.0),
+                new ApplicableCoupon(2L, "bxgy", 15.0),
+                new ApplicableCoupon(3L, "product-wise", 10.0),
+                new ApplicableCoupon(4L, "bxgy", 5.0));
+        List<CouponRule> rules = List.of(
+                buyOneGetOne(7L, 8L),
+                // Same buy product, different free product: one bought unit can't pay for both rewards
+                buyOneGetOne(7L, 9L),
+                // Discounts the units coupon 1 needs as its buy product
+                new ProductWiseRule(7L, 1_000),
+                buyOneGetOne(10L, 11L));
+
+        BestCombination best = new CouponCombinationSearch(10_000, 64, 1_000).search(applicable, rules, 50_000);
+
+        assertEquals(List.of(1L, 4L), best.coupons().stream().map(ApplicableCoupon::couponId).toList());
+        assertEquals(25.0, best.totalDiscount());
+        assertTrue(best.exhaustive());
+    }
+}
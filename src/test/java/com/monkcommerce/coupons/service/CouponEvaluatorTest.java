@@ -0,0 +1,55 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.catalog.CompiledCoupon;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
+import com.monkcommerce.coupons.model.ApplicableCoupon;
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartItem;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.strategy.ProductWiseStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouponEvaluatorTest {
+
+    private List<CompiledCoupon> productWiseCoupons(int count) {
+        ProductWiseStrategy strategy = new ProductWiseStrategy();
+        List<CompiledCoupon> coupons = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Coupon coupon = new Coupon();
+            coupon.setId((long) i);
+            coupon.setType("product-wise");
+            coupon.setDetails(Map.of("product_id", i % 10, "discount", i % 50));
+            coupons.add(new CompiledCoupon(coupon, strategy, strategy.compile(coupon.getDetails())));
+        }
+        return coupons;
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        CouponProperties parallel = new CouponProperties();
+        parallel.getEvaluation().setParallelEnabled(true);
+        parallel.getEvaluation().setParallelThreshold(8);
+        parallel.getEvaluation().setParallelism(4);
+
+        Cart cart = new Cart();
+        cart.setItems(List.of(new CartItem(1L, 2, 10.0, 0.0), new CartItem(3L, 1, 99.0, 0.0)));
+        CartView view = CartView.of(cart);
+        List<CompiledCoupon> candidates = productWiseCoupons(1000);
+
+        CouponEvaluator parallelEvaluator = new CouponEvaluator(parallel, new CouponMetrics(new SimpleMeterRegistry(), parallel));
+        try {
+            List<ApplicableCoupon> expected = new CouponEvaluator(new CouponProperties(),
+                    new CouponMetrics(new SimpleMeterRegistry(), new CouponProperties())).evaluate(candidates, view);
+            List<ApplicableCoupon> actual = parallelEvaluator.evaluate(candidates, view);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, actual);
+        } finally {
+            parallelEvaluator.shutdown();
+        }
+    }
+}
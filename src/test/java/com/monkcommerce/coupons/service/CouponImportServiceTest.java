@@ -0,0 +1,111 @@
+package com.monkcommerce.coupons.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monkcommerce.coupons.catalog.CouponCatalog;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.model.BulkImportResult;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import com.monkcommerce.coupons.strategy.CartWiseStrategy;
+import com.monkcommerce.coupons.strategy.ProductWiseStrategy;
+import com.monkcommerce.coupons.strategy.StrategyRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouponImportServiceTest {
+    private CouponRepository couponRepository;
+    private CouponCatalog couponCatalog;
+    private CouponProductIndex couponProductIndex;
+    private EntityManager entityManager;
+    private CouponProperties properties;
+    private List<List<Coupon>> saved;
+
+    @BeforeEach
+    void setUp() {
+        couponRepository = Mockito.mock(CouponRepository.class);
+        couponCatalog = Mockito.mock(CouponCatalog.class);
+        entityManager = Mockito.mock(EntityManager.class);
+        couponProductIndex = Mockito.mock(CouponProductIndex.class);
+        properties = new CouponProperties();
+        saved = new ArrayList<>();
+        Mockito.when(couponRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Coupon> chunk = invocation.getArgument(0);
+            saved.add(new ArrayList<>(chunk));
+            return chunk;
+        });
+    }
+
+    private CouponImportService service() {
+        StrategyRegistry strategies = new StrategyRegistry(List.of(new CartWiseStrategy(), new ProductWiseStrategy()), properties);
+        return new CouponImportService(couponRepository, couponCatalog, couponProductIndex, new ObjectMapper(), entityManager,
+                Mockito.mock(PlatformTransactionManager.class), properties, strategies, Mockito.mock(CouponChangeLog.class));
+    }
+
+    private BulkImportResult importBody(String body) throws Exception {
+        return service().importCoupons(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String cartWise(int threshold) {
+        return "{\"type\":\"cart-wise\",\"details\":{\"threshold\":" + threshold + ",\"discount\":10}}";
+    }
+
+    @Test
+    void testImportArrayWithRowErrors() throws Exception {
+        BulkImportResult result = importBody("[" + cartWise(100) + ","
+                + "{\"type\":\"unknown\",\"details\":{}},"
+                + "{\"type\":\"cart-wise\",\"details\":{\"threshold\":\"x\"}},"
+                + "{\"type\":\"cart-wise\",\"details\":5},"
+                + cartWise(200) + "]");
+
+        assertEquals(2, result.imported());
+        assertEquals(3, result.failed());
+        assertEquals(List.of(1, 2, 3), result.errors().stream().map(BulkImportResult.RowError::row).toList());
+        assertEquals(1, saved.size());
+        Mockito.verify(couponCatalog).invalidate();
+    }
+
+    @Test
+    void testImportNdjsonInChunks() throws Exception {
+        properties.getBulk().setChunkSize(2);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            body.append(cartWise(i)).append('\n');
+        }
+        BulkImportResult result = importBody(body.toString());
+
+        assertEquals(5, result.imported());
+        assertEquals(List.of(2, 2, 1), saved.stream().map(List::size).toList());
+        Mockito.verify(couponProductIndex, Mockito.times(3)).index(Mockito.anyList());
+        Mockito.verify(entityManager, Mockito.times(3)).clear();
+    }
+
+    @Test
+    void testMalformedJsonKeepsEarlierChunks() throws Exception {
+        properties.getBulk().setChunkSize(1);
+        BulkImportResult result = importBody(cartWise(1) + "\n{\"type\":");
+
+        assertEquals(1, result.imported());
+        assertEquals(1, result.failed());
+        assertTrue(result.errors().get(0).message().startsWith("Malformed JSON"));
+    }
+
+    @Test
+    void testRejectedChunkFailsEveryRowAndErrorsAreCapped() throws Exception {
+        properties.getBulk().setMaxErrors(2);
+        Mockito.when(couponRepository.saveAll(Mockito.anyList())).thenThrow(new IllegalStateException("boom"));
+        BulkImportResult result = importBody("[" + cartWise(1) + "," + cartWise(2) + "," + cartWise(3) + "]");
+
+        assertEquals(0, result.imported());
+        assertEquals(3, result.failed());
+        assertEquals(2, result.errors().size());
+        assertTrue(result.errorsTruncated());
+        Mockito.verify(couponCatalog, Mockito.never()).invalidate();
+    }
+}
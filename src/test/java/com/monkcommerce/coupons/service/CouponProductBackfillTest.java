@@ -0,0 +1,39 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponProduct;
+import com.monkcommerce.coupons.repository.CouponProductRepository;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CouponProductBackfillTest {
+    @Autowired
+    private CouponProductBackfill backfill;
+    @Autowired
+    private CouponRepository couponRepository;
+    @Autowired
+    private CouponProductRepository couponProductRepository;
+
+    @Test
+    void testIndexesCouponsSavedWithoutRowsOnce() {
+        // Saved straight through the repository, as coupons stored before coupon_products existed
+        Coupon legacy = new Coupon();
+        legacy.setType("product-wise");
+        legacy.setDetails(Map.of("product_id", 4242, "discount", 10));
+        legacy = couponRepository.save(legacy);
+        assertTrue(couponProductRepository.findByProductId(4242L).isEmpty());
+
+        assertTrue(backfill.backfill() >= 1);
+        assertEquals(List.of(legacy.getId()),
+                couponProductRepository.findByProductId(4242L).stream().map(CouponProduct::getCouponId).toList());
+
+        // Only cart-wide coupons are left without rows, so a second run writes nothing
+        assertEquals(0, backfill.backfill());
+        assertEquals(1, couponProductRepository.findByProductId(4242L).size());
+    }
+}
@@ -0,0 +1,47 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponProduct;
+import com.monkcommerce.coupons.repository.CouponProductRepository;
+import com.monkcommerce.coupons.strategy.BxGyStrategy;
+import com.monkcommerce.coupons.strategy.CartWiseStrategy;
+import com.monkcommerce.coupons.strategy.ProductWiseStrategy;
+import com.monkcommerce.coupons.strategy.StrategyRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouponProductIndexTest {
+
+    private static Coupon coupon(long id, String type, Map<String, Object> details) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setType(type);
+        coupon.setDetails(details);
+        return coupon;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testIndexesBoughtAndDiscountedProductsOnce() {
+        CouponProductRepository repository = Mockito.mock(CouponProductRepository.class);
+        CouponProductIndex index = new CouponProductIndex(repository,
+                new StrategyRegistry(List.of(new CartWiseStrategy(), new ProductWiseStrategy(), new BxGyStrategy()), new CouponProperties()));
+
+        Coupon bxgy = coupon(1L, "bxgy", Map.of(
+                "buy_products", List.of(Map.of("product_id", 1, "quantity", 2), Map.of("product_id", 2, "quantity", 1)),
+                "get_products", List.of(Map.of("product_id", 2, "quantity", 1)),
+                "repetition_limit", 1));
+        Coupon productWise = coupon(2L, "product-wise", Map.of("product_id", 5, "discount", 10));
+        Coupon cartWise = coupon(3L, "cart-wise", Map.of("threshold", 100, "discount", 10));
+        index.index(List.of(bxgy, productWise, cartWise));
+
+        ArgumentCaptor<List<CouponProduct>> rows = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(repository).saveAll(rows.capture());
+        assertEquals(List.of(new CouponProduct(1L, 1L), new CouponProduct(1L, 2L), new CouponProduct(2L, 5L)),
+                rows.getValue());
+    }
+}
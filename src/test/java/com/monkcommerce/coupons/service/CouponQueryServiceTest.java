@@ -0,0 +1,80 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponFilter;
+import com.monkcommerce.coupons.model.CouponPage;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Limit;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouponQueryServiceTest {
+    private CouponRepository couponRepository;
+    private EntityManager entityManager;
+    private CouponQueryService service;
+    private final List<Coupon> table = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        couponRepository = Mockito.mock(CouponRepository.class);
+        entityManager = Mockito.mock(EntityManager.class);
+        for (long id = 1; id <= 10; id++) {
+            Coupon coupon = new Coupon();
+            coupon.setId(id);
+            table.add(coupon);
+        }
+        Mockito.when(couponRepository.findPage(Mockito.anyLong(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    long after = invocation.getArgument(0);
+                    Limit limit = invocation.getArgument(4);
+                    return table.stream().filter(c -> c.getId() > after).limit(limit.max()).toList();
+                });
+        Mockito.when(couponRepository.streamAll(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> table.stream());
+        service = new CouponQueryService(couponRepository, entityManager, new CouponProperties());
+    }
+
+    private static CouponFilter noFilter() {
+        return new CouponFilter(null, null, null, null);
+    }
+
+    @Test
+    void testKeysetPagesCoverTableOnce() {
+        List<Long> seen = new ArrayList<>();
+        Long after = null;
+        do {
+            CouponPage page = service.listCoupons(noFilter(), after, 4);
+            page.coupons().forEach(c -> seen.add(c.getId()));
+            after = page.nextAfter();
+        } while (after != null);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), seen);
+    }
+
+    @Test
+    void testProductFilterUsesSideTableQuery() {
+        Mockito.when(couponRepository.findPageByProduct(Mockito.eq(0L), Mockito.eq(70L), Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any())).thenReturn(List.of(table.get(6)));
+        CouponPage page = service.listCoupons(new CouponFilter(null, null, null, 70L), null, 1);
+        assertEquals(List.of(7L), page.coupons().stream().map(Coupon::getId).toList());
+        assertNull(page.nextAfter());
+    }
+
+    @Test
+    void testLimitOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> service.listCoupons(noFilter(), null, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.listCoupons(noFilter(), null, 100_000));
+    }
+
+    @Test
+    void testExportDetachesEveryRow() throws Exception {
+        List<Long> exported = new ArrayList<>();
+        service.exportCoupons(noFilter(), coupon -> exported.add(coupon.getId()));
+        assertEquals(10, exported.size());
+        Mockito.verify(entityManager, Mockito.times(10)).detach(Mockito.any());
+    }
+}
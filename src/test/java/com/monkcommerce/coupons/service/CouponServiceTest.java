@@ -1,9 +1,17 @@
 package com.monkcommerce.coupons.service;
 
+import com.monkcommerce.coupons.catalog.CouponCatalog;
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.exception.InvalidCouponDetailsException;
+import com.monkcommerce.coupons.exception.InvalidCouponTypeException;
+import com.monkcommerce.coupons.metrics.CouponMetrics;
 import com.monkcommerce.coupons.model.Cart;
 import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.repository.CouponRedemptionRepository;
 import com.monkcommerce.coupons.repository.CouponRepository;
 import com.monkcommerce.coupons.strategy.CouponStrategy;
+import com.monkcommerce.coupons.strategy.StrategyRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -15,6 +23,7 @@ class CouponServiceTest {
     private CouponRepository couponRepository;
     private CouponStrategy strategy;
     private CouponService service;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
@@ -23,17 +32,42 @@ class CouponServiceTest {
         // Ensure the mock reports its canonical type BEFORE constructing the service
         Mockito.when(strategy.getType()).thenReturn("bxgy");
 
-        List<CouponStrategy> strategies = List.of(strategy);
-        service = new CouponService(couponRepository, strategies);
+        CouponProperties properties = new CouponProperties();
+        StrategyRegistry strategies = new StrategyRegistry(List.of(strategy), properties);
+        meterRegistry = new SimpleMeterRegistry();
+        CouponMetrics metrics = new CouponMetrics(meterRegistry, properties);
+        service = new CouponService(couponRepository, new CouponCatalog(couponRepository, strategies, properties, metrics),
+                new CouponEvaluator(properties, metrics), properties, metrics,
+                new RedemptionTracker(couponRepository, Mockito.mock(CouponRedemptionRepository.class), properties),
+                Mockito.mock(CouponProductIndex.class), strategies, new ApplicableCouponsCache(properties, metrics),
+                Mockito.mock(CouponChangeLog.class));
     }
 
     @Test
     void testCreateCoupon() {
         Coupon coupon = new Coupon();
+        coupon.setType("bxgy");
         Mockito.when(couponRepository.save(coupon)).thenReturn(coupon);
         assertEquals(coupon, service.createCoupon(coupon));
     }
 
+    @Test
+    void testCreateCouponRejectsUnknownType() {
+        Coupon coupon = new Coupon();
+        coupon.setType("mystery");
+        assertThrows(InvalidCouponTypeException.class, () -> service.createCoupon(coupon));
+        Mockito.verify(couponRepository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    void testCreateCouponRejectsNegativeLimits() {
+        Coupon coupon = new Coupon();
+        coupon.setType("bxgy");
+        coupon.setMaxRedemptionsPerUser(-1);
+        assertThrows(InvalidCouponDetailsException.class, () -> service.createCoupon(coupon));
+        Mockito.verify(couponRepository, Mockito.never()).save(Mockito.any());
+    }
+
     @Test
     void testGetCouponFound() {
         Coupon coupon = new Coupon();
@@ -63,7 +97,7 @@ class CouponServiceTest {
         coupon.setId(1L);
         coupon.setType("bxgy");
         coupon.setDetails(new HashMap<>());
-        Mockito.when(couponRepository.findAll()).thenReturn(List.of(coupon));
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(coupon));
         Mockito.when(strategy.getType()).thenReturn("bxgy");
         Mockito.when(strategy.isApplicable(cart, coupon.getDetails())).thenReturn(true);
         Mockito.when(strategy.applyDiscount(Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
@@ -73,6 +107,9 @@ class CouponServiceTest {
         });
         Map<String, Object> result = service.getApplicableCoupons(cart);
         assertTrue(result.containsKey("applicable_coupons"));
+        assertEquals(1L, result.get("catalog_version"));
+        assertEquals(1, meterRegistry.get("coupons.evaluation.candidates").summary().count());
+        assertEquals(1.0, meterRegistry.get("coupons.catalog.size").gauge().value());
     }
 
     @Test
@@ -89,6 +126,22 @@ class CouponServiceTest {
         assertEquals(cart, service.applyCoupon(1L, cart));
     }
 
+    @Test
+    void testApplyCouponServedFromCatalog() {
+        Cart cart = new Cart();
+        Coupon coupon = new Coupon();
+        coupon.setId(1L);
+        coupon.setType("bxgy");
+        coupon.setDetails(new HashMap<>());
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(coupon));
+        Mockito.when(strategy.isApplicable(cart, coupon.getDetails())).thenReturn(true);
+        Mockito.when(strategy.applyDiscount(cart, coupon.getDetails())).thenReturn(cart);
+        assertEquals(cart, service.applyCoupon(1L, cart));
+        assertEquals(cart, service.applyCoupon(1L, cart));
+        Mockito.verify(couponRepository, Mockito.never()).findById(Mockito.any());
+        Mockito.verify(couponRepository, Mockito.times(1)).findActive(Mockito.any());
+    }
+
     @Test
     void testApplyCouponInvalidType() {
         Cart cart = new Cart();
@@ -124,4 +177,48 @@ class CouponServiceTest {
         Mockito.when(couponRepository.findById(4L)).thenReturn(Optional.of(coupon));
         assertThrows(com.monkcommerce.coupons.exception.CouponExpiredException.class, () -> service.applyCoupon(4L, cart));
     }
+
+    @Test
+    void testGetApplicableCouponsBatch() throws Exception {
+        Coupon coupon = new Coupon();
+        coupon.setId(1L);
+        coupon.setType("bxgy");
+        coupon.setDetails(new HashMap<>());
+        Mockito.when(couponRepository.findActive(Mockito.any())).thenReturn(List.of(coupon));
+        Mockito.when(strategy.isApplicable(Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> ((Cart) invocation.getArgument(0)).getTotalPrice() > 50);
+        Mockito.when(strategy.applyDiscount(Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            Cart c = invocation.getArgument(0);
+            c.setTotalDiscount(5.0);
+            return c;
+        });
+
+        List<Cart> carts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Cart cart = new Cart();
+            cart.setTotalPrice(i);
+            carts.add(cart);
+        }
+
+        List<Integer> indexes = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        service.getApplicableCouponsBatch(carts).evaluate((index, coupons) -> {
+            indexes.add(index);
+            sizes.add(coupons.size());
+        });
+
+        assertEquals(200, indexes.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, indexes.get(i));
+            assertEquals(i > 50 ? 1 : 0, sizes.get(i));
+        }
+        Mockito.verify(couponRepository, Mockito.times(1)).findActive(Mockito.any());
+    }
+
+    @Test
+    void testBatchTooLarge() {
+        List<Cart> carts = Collections.nCopies(1001, new Cart());
+        assertThrows(com.monkcommerce.coupons.exception.BatchTooLargeException.class, () -> service.getApplicableCouponsBatch(carts));
+        Mockito.verify(couponRepository, Mockito.never()).findActive(Mockito.any());
+    }
 }
@@ -0,0 +1,141 @@
+package com.monkcommerce.coupons.service;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.exception.CouponCriteriaNotMetException;
+import com.monkcommerce.coupons.exception.CouponLimitReachedException;
+import com.monkcommerce.coupons.model.Coupon;
+import com.monkcommerce.coupons.model.CouponRedemption;
+import com.monkcommerce.coupons.repository.CouponRedemptionRepository;
+import com.monkcommerce.coupons.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedemptionTrackerTest {
+    private CouponRepository couponRepository;
+    private CouponRedemptionRepository redemptionRepository;
+    private CouponProperties properties;
+    private RedemptionTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        couponRepository = Mockito.mock(CouponRepository.class);
+        redemptionRepository = Mockito.mock(CouponRedemptionRepository.class);
+        Mockito.when(redemptionRepository.findByCouponIdAndUserId(Mockito.any(), Mockito.any())).thenReturn(Optional.empty());
+        properties = new CouponProperties();
+        tracker = new RedemptionTracker(couponRepository, redemptionRepository, properties);
+    }
+
+    private Coupon coupon(Integer max, Integer maxPerUser) {
+        Coupon coupon = new Coupon();
+        coupon.setId(1L);
+        coupon.setMaxRedemptions(max);
+        coupon.setMaxRedemptionsPerUser(maxPerUser);
+        return coupon;
+    }
+
+    @Test
+    void testConcurrentReservationsNeverExceedCap() throws Exception {
+        Coupon coupon = coupon(50, null);
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    tracker.commit(tracker.reserve(coupon, null));
+                    granted.incrementAndGet();
+                } catch (CouponLimitReachedException ignored) {
+                    // expected once the cap is hit
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(50, granted.get());
+        tracker.flush();
+        Mockito.verify(couponRepository).addRedemptions(Map.of(1L, 50L));
+    }
+
+    @Test
+    void testPerUserCap() {
+        Coupon coupon = coupon(null, 1);
+        tracker.commit(tracker.reserve(coupon, "alice"));
+        assertThrows(CouponLimitReachedException.class, () -> tracker.reserve(coupon, "alice"));
+        tracker.commit(tracker.reserve(coupon, "bob"));
+        assertThrows(CouponCriteriaNotMetException.class, () -> tracker.reserve(coupon, null));
+
+        tracker.flush();
+        Mockito.verify(couponRepository).addRedemptions(Map.of(1L, 2L));
+        // Both pairs in one batch, without reading the rows first
+        ArgumentCaptor<Collection<CouponRedemption>> rows = ArgumentCaptor.captor();
+        Mockito.verify(redemptionRepository).addCounts(rows.capture());
+        assertEquals(Set.of("alice", "bob"), rows.getValue().stream().map(CouponRedemption::getUserId).collect(java.util.stream.Collectors.toSet()));
+        assertTrue(rows.getValue().stream().allMatch(row -> row.getCount() == 1));
+    }
+
+    @Test
+    void testReleaseReturnsSlot() {
+        Coupon coupon = coupon(1, null);
+        RedemptionTracker.Reservation reservation = tracker.reserve(coupon, null);
+        assertThrows(CouponLimitReachedException.class, () -> tracker.reserve(coupon, null));
+        tracker.release(reservation);
+        tracker.commit(tracker.reserve(coupon, null));
+
+        tracker.flush();
+        Mockito.verify(couponRepository).addRedemptions(Map.of(1L, 1L));
+    }
+
+    @Test
+    void testSeedsFromStoredCount() {
+        Coupon coupon = coupon(3, null);
+        coupon.setRedemptionCount(3);
+        assertThrows(CouponLimitReachedException.class, () -> tracker.reserve(coupon, null));
+    }
+
+    @Test
+    void testIdleCountersAreEvictedOnceFlushed() {
+        properties.getRedemption().setIdleEvictMs(0);
+        tracker = new RedemptionTracker(couponRepository, redemptionRepository, properties);
+        Coupon coupon = coupon(2, 1);
+        tracker.commit(tracker.reserve(coupon, "alice"));
+        // An open reservation keeps its counters; alice's is flushed and dropped
+        RedemptionTracker.Reservation open = tracker.reserve(coupon, "bob");
+        tracker.flush();
+        assertEquals(2, tracker.trackedCounters());
+
+        tracker.commit(open);
+        tracker.flush();
+        assertEquals(0, tracker.trackedCounters());
+
+        // Seeded again from storage, where both redemptions now are
+        Mockito.when(couponRepository.findRedemptionCount(1L)).thenReturn(Optional.of(2L));
+        assertThrows(CouponLimitReachedException.class, () -> tracker.reserve(coupon, "carol"));
+    }
+
+    @Test
+    void testFailedFlushKeepsDeltas() {
+        properties.getRedemption().setIdleEvictMs(0);
+        tracker = new RedemptionTracker(couponRepository, redemptionRepository, properties);
+        Mockito.doThrow(new IllegalStateException("down")).doNothing().when(couponRepository).addRedemptions(Mockito.any());
+        tracker.commit(tracker.reserve(coupon(null, null), null));
+
+        tracker.flush();
+        assertEquals(1, tracker.trackedCounters());
+        tracker.flush();
+        Mockito.verify(couponRepository, Mockito.times(2)).addRedemptions(Map.of(1L, 1L));
+        assertEquals(0, tracker.trackedCounters());
+    }
+}
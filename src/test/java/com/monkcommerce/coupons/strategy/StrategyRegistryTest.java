@@ -0,0 +1,143 @@
+package com.monkcommerce.coupons.strategy;
+
+import com.monkcommerce.coupons.config.CouponProperties;
+import com.monkcommerce.coupons.exception.InvalidCouponDetailsException;
+import com.monkcommerce.coupons.exception.InvalidCouponTypeException;
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.Coupon;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StrategyRegistryTest {
+
+    private StrategyRegistry registry(CouponProperties properties) {
+        return new StrategyRegistry(List.of(new CartWiseStrategy(), new ProductWiseStrategy(), new BxGyStrategy()), properties);
+    }
+
+    @Test
+    void testRegisterReplacesByType() {
+        StrategyRegistry registry = registry(new CouponProperties());
+        assertInstanceOf(CartWiseStrategy.class, registry.find("cart-wise"));
+        assertInstanceOf(BxGyStrategy.class, registry.find("bxgy"));
+        assertNull(registry.find("mystery"));
+        assertNull(registry.find(null));
+
+        // Replacing a type tells the listeners
+        AtomicInteger changes = new AtomicInteger();
+        registry.addListener(changes::incrementAndGet);
+        CartWiseStrategy replacement = new CartWiseStrategy();
+        registry.register(replacement);
+        assertSame(replacement, registry.find("cart-wise"));
+        assertEquals(1, changes.get());
+
+        CouponStrategy custom = Mockito.mock(CouponStrategy.class);
+        Mockito.when(custom.getType()).thenReturn("custom");
+        registry.register(custom);
+        assertSame(custom, registry.find("custom"));
+        assertEquals(2, changes.get());
+    }
+
+    @Test
+    void testValidateChecksTypeAndDetails() {
+        StrategyRegistry registry = registry(new CouponProperties());
+        assertInstanceOf(CartWiseStrategy.class, registry.validate("cart-wise", Map.of("threshold", 100, "discount", 10)));
+        assertThrows(InvalidCouponDetailsException.class, () -> registry.validate("cart-wise", Map.of("threshold", 100)));
+        assertThrows(InvalidCouponTypeException.class, () -> registry.validate("mystery", Map.of()));
+        assertThrows(InvalidCouponTypeException.class, () -> registry.validate(null, Map.of()));
+    }
+
+    @Test
+    void testValidateCouponRejectsNegativeLimits() {
+        StrategyRegistry registry = registry(new CouponProperties());
+        Coupon coupon = new Coupon();
+        coupon.setType("cart-wise");
+        coupon.setDetails(Map.of("threshold", 100, "discount", 10));
+        coupon.setMaxRedemptions(0);
+        assertInstanceOf(CartWiseStrategy.class, registry.validate(coupon));
+
+        coupon.setMaxRedemptionsPerUser(-1);
+        assertThrows(InvalidCouponDetailsException.class, () -> registry.validate(coupon));
+        coupon.setMaxRedemptionsPerUser(null);
+        coupon.setMaxRedemptions(-1);
+        assertThrows(InvalidCouponDetailsException.class, () -> registry.validate(coupon));
+    }
+
+    @Test
+    void testScanLoadsPluginJarsAndReloadsChangedOnes(@TempDir Path dir) throws Exception {
+        CouponProperties properties = new CouponProperties();
+        properties.getStrategies().setPluginDir(dir.toString());
+        StrategyRegistry registry = registry(properties);
+        AtomicInteger changes = new AtomicInteger();
+        registry.addListener(changes::incrementAndGet);
+
+        registry.scanPlugins();
+        assertNull(registry.find("flat-fee"));
+
+        Path jar = pluginJar(dir, "flat-fee", "free-gift");
+        registry.scanPlugins();
+        CouponStrategy loaded = registry.find("flat-fee");
+        assertEquals("plugin.Strategy0", loaded.getClass().getName());
+        assertTrue(loaded.isApplicable(new Cart(), Map.of()));
+        assertEquals("plugin.Strategy1", registry.find("free-gift").getClass().getName());
+        // One notification for the whole jar
+        assertEquals(1, changes.get());
+
+        // Unchanged jars are skipped; a rewritten jar is loaded again
+        registry.scanPlugins();
+        assertSame(loaded, registry.find("flat-fee"));
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 1_000));
+        registry.scanPlugins();
+        assertNotSame(loaded, registry.find("flat-fee"));
+        assertEquals(2, changes.get());
+    }
+
+    // Compiles one strategy class per type against the application classes and packs them with their service file
+    private static Path pluginJar(Path dir, String... types) throws Exception {
+        Path src = Files.createDirectories(dir.resolve("src/plugin"));
+        Path classes = Files.createDirectories(dir.resolve("classes"));
+        String classpath = Path.of(CouponStrategy.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StringBuilder services = new StringBuilder();
+        for (int i = 0; i < types.length; i++) {
+            Path file = src.resolve("Strategy" + i + ".java");
+            Files.writeString(file, """
+                    package plugin;
+
+                    import com.monkcommerce.coupons.model.Cart;
+                    import com.monkcommerce.coupons.strategy.CouponStrategy;
+                    import java.util.Map;
+
+                    public class Strategy%d implements CouponStrategy {
+                        public String getType() { return "%s"; }
+                        public boolean isApplicable(Cart cart, Map<String, Object> details) { return true; }
+                        public Cart applyDiscount(Cart cart, Map<String, Object> details) { return cart; }
+                    }
+                    """.formatted(i, types[i]));
+            assertEquals(0, compiler.run(null, null, null, "-cp", classpath, "-d", classes.toString(), file.toString()));
+            services.append("plugin.Strategy").append(i).append('\n');
+        }
+
+        Path jar = dir.resolve("plugin.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (int i = 0; i < types.length; i++) {
+                out.putNextEntry(new JarEntry("plugin/Strategy" + i + ".class"));
+                Files.copy(classes.resolve("plugin/Strategy" + i + ".class"), out);
+            }
+            out.putNextEntry(new JarEntry("META-INF/services/" + CouponStrategy.class.getName()));
+            out.write(services.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,184 @@
+package com.monkcommerce.coupons.strategy;
+
+import com.monkcommerce.coupons.model.Cart;
+import com.monkcommerce.coupons.model.CartItem;
+import com.monkcommerce.coupons.model.CartView;
+import com.monkcommerce.coupons.rule.BxGyRule;
+import com.monkcommerce.coupons.rule.CartWiseRule;
+import com.monkcommerce.coupons.rule.CouponRule;
+import com.monkcommerce.coupons.rule.ProductWiseRule;
+import com.monkcommerce.coupons.rule.RewardAllocation;
+import com.monkcommerce.coupons.utils.Money;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypedCouponStrategyTest {
+
+    private Cart cart() {
+        Cart cart = new Cart();
+        cart.setItems(new ArrayList<>(List.of(
+                new CartItem(1L, 6, 50.0, 0.0),
+                new CartItem(2L, 3, 30.0, 0.0),
+                new CartItem(3L, 2, 25.0, 0.0))));
+        cart.setTotalPrice(440.0);
+        return cart;
+    }
+
+    // The dry-run discount must match what applyDiscount writes, and must leave the cart untouched
+    private <R extends CouponRule> void assertDryRunMatchesApply(
+            TypedCouponStrategy<R> strategy, R rule, double expected) {
+        Cart source = cart();
+        CartView view = CartView.of(source);
+        assertTrue(strategy.isApplicable(view, rule));
+        double dryRun = Money.toMajor(strategy.computeDiscount(view, rule));
+
+        assertEquals(0.0, source.getTotalDiscount());
+        assertTrue(source.getItems().stream().allMatch(i -> i.getTotalDiscount() == 0.0));
+
+        Cart applied = strategy.applyDiscount(cart(), rule);
+        assertEquals(expected, dryRun);
+        assertEquals(applied.getTotalDiscount(), dryRun);
+    }
+
+    @Test
+    void testCartWiseCompileAndDryRun() {
+        CartWiseStrategy strategy = new CartWiseStrategy();
+        CartWiseRule rule = strategy.compile(Map.of("threshold", 100, "discount", 10));
+        assertEquals(new CartWiseRule(10_000, 1_000), rule);
+        assertNull(strategy.compile(Map.of("threshold", 100)));
+        assertDryRunMatchesApply(strategy, rule, 44.0);
+    }
+
+    @Test
+    void testProductWiseCompileAndDryRun() {
+        ProductWiseStrategy strategy = new ProductWiseStrategy();
+        ProductWiseRule rule = strategy.compile(Map.of("product_id", 1, "discount", 20));
+        assertEquals(new ProductWiseRule(1L, 2_000), rule);
+        assertNull(strategy.compile(Map.of("product_id", "x", "discount", 20)));
+        assertDryRunMatchesApply(strategy, rule, 60.0);
+    }
+
+    @Test
+    void testBxGyCompileAndDryRun() {
+        BxGyStrategy strategy = new BxGyStrategy();
+        BxGyRule rule = strategy.compile(Map.of(
+                "buy_products", List.of(Map.of("product_id", 1, "quantity", 3), Map.of("product_id", 2, "quantity", 3)),
+                "get_products", List.of(Map.of("product_id", 3, "quantity", 1)),
+                "repetition_limit", 2));
+        assertArrayEquals(new long[]{1L, 2L}, rule.buyIds());
+        assertArrayEquals(new int[]{3, 3}, rule.buyQty());
+        assertArrayEquals(new long[]{3L}, rule.getIds());
+        assertNull(strategy.compile(Map.of("buy_products", List.of())));
+        // 3 buy sets capped at 2 -> 2 free units of product 3
+        assertDryRunMatchesApply(strategy, rule, 50.0);
+    }
+
+    private static Map<String, Object> bxgy(List<Long> buy, int buyQty, List<Long> get, int getQty, int limit, String allocation) {
+        Map<String, Object> details = new HashMap<>();
+        details.put("buy_products", buy.stream().map(id -> Map.<String, Object>of("product_id", id, "quantity", buyQty)).toList());
+        details.put("get_products", get.stream().map(id -> Map.<String, Object>of("product_id", id, "quantity", getQty)).toList());
+        details.put("repetition_limit", limit);
+        if (allocation != null) {
+            details.put("reward_allocation", allocation);
+        }
+        return details;
+    }
+
+    @Test
+    void testBxGyRewardAllocation() {
+        BxGyStrategy strategy = new BxGyStrategy();
+        // Buy 2 of product 1, get one unit each of products 2 (20.00), 3 (5.00) and 4 (12.50): three free units to place
+        Cart source = new Cart();
+        source.setItems(new ArrayList<>(List.of(
+                new CartItem(1L, 2, 10.0, 0.0),
+                new CartItem(2L, 1, 20.0, 0.0),
+                new CartItem(3L, 1, 5.0, 0.0),
+                new CartItem(4L, 2, 12.5, 0.0))));
+        source.setTotalPrice(75.0);
+
+        Map<String, Long> expected = Map.of("cart_order", 3750L, "cheapest_first", 3000L, "most_expensive_first", 4500L);
+        expected.forEach((allocation, discount) -> {
+            BxGyRule rule = strategy.compile(bxgy(List.of(1L), 2, List.of(2L, 3L, 4L), 1, 1, allocation));
+            assertEquals(RewardAllocation.parse(allocation), rule.allocation());
+            assertEquals(discount, strategy.computeDiscount(CartView.of(source), rule), allocation);
+            Cart applied = strategy.applyDiscount(source.copy(), rule);
+            assertEquals(Money.toMajor(discount), applied.getTotalDiscount(), allocation);
+        });
+
+        BxGyRule cheapest = strategy.compile(bxgy(List.of(1L), 2, List.of(2L, 3L, 4L), 1, 1, "cheapest_first"));
+        Cart applied = strategy.applyDiscount(source.copy(), cheapest);
+        assertEquals(List.of(0.0, 0.0, 5.0, 25.0), applied.getItems().stream().map(CartItem::getTotalDiscount).toList());
+
+        assertEquals(RewardAllocation.CART_ORDER, strategy.compile(bxgy(List.of(1L), 2, List.of(2L), 1, 1, null)).allocation());
+        assertNull(strategy.compile(bxgy(List.of(1L), 2, List.of(2L), 1, 1, "random")));
+    }
+
+    // The original nested-loop engine: every buy entry against every line, rewards first come first served
+    private static long referenceBxGyDiscount(Cart cart, List<Long> buy, int buyQty, List<Long> get, int getQty, int limit) {
+        int sets = 0;
+        for (Long id : buy) {
+            int count = 0;
+            for (CartItem item : cart.getItems()) {
+                if (id.equals(item.getProductId())) count += item.getQuantity();
+            }
+            sets += count / buyQty;
+        }
+        sets = Math.min(sets, limit);
+        int free = sets <= 0 ? 0 : sets * getQty * get.size();
+        long discount = 0;
+        for (CartItem item : cart.getItems()) {
+            if (free <= 0) break;
+            if (get.contains(item.getProductId())) {
+                int units = Math.min(item.getQuantity(), free);
+                discount += units * Money.toMinor(item.getPrice());
+                free -= units;
+            }
+        }
+        return discount;
+    }
+
+    @Test
+    void testBxGyMatchesReferenceEngine() {
+        BxGyStrategy strategy = new BxGyStrategy();
+        Random random = new Random(21);
+        for (int round = 0; round < 500; round++) {
+            List<CartItem> items = new ArrayList<>();
+            int lines = 1 + random.nextInt(12);
+            for (int i = 0; i < lines; i++) {
+                items.add(new CartItem((long) 1 + random.nextInt(15), 1 + random.nextInt(4), (100 + random.nextInt(5_000)) / 100.0, 0.0));
+            }
+            Cart cart = new Cart();
+            cart.setItems(items);
+            List<Long> buy = new ArrayList<>();
+            List<Long> get = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(6); i++) buy.add((long) 1 + random.nextInt(15));
+            for (int i = 0; i < 1 + random.nextInt(6); i++) get.add((long) 1 + random.nextInt(15));
+            int buyQty = 1 + random.nextInt(3);
+            int limit = random.nextInt(4);
+
+            BxGyRule rule = strategy.compile(bxgy(buy, buyQty, get, 1, limit, null));
+            long expected = referenceBxGyDiscount(cart, buy, buyQty, get, 1, limit);
+            assertEquals(expected, strategy.computeDiscount(CartView.of(cart), rule), "round " + round);
+        }
+    }
+
+    @Test
+    void testDiscountsAreExactToTheCent() {
+        // Three 0.10 lines at 25% off: 7.5 cents rounds half-even to 8, spread as 2 + 3 + 3
+        Cart source = new Cart();
+        source.setItems(new ArrayList<>(List.of(
+                new CartItem(1L, 1, 0.10, 0.0),
+                new CartItem(1L, 1, 0.10, 0.0),
+                new CartItem(1L, 1, 0.10, 0.0))));
+        source.setTotalPrice(0.30);
+        ProductWiseStrategy strategy = new ProductWiseStrategy();
+        ProductWiseRule rule = strategy.compile(Map.of("product_id", 1, "discount", 25));
+
+        assertEquals(8, strategy.computeDiscount(CartView.of(source), rule));
+        Cart applied = strategy.applyDiscount(source, rule);
+        assertEquals(0.08, applied.getTotalDiscount());
+        assertEquals(0.22, applied.getFinalPrice());
+        assertEquals(List.of(0.02, 0.03, 0.03), applied.getItems().stream().map(CartItem::getTotalDiscount).toList());
+    }
+}
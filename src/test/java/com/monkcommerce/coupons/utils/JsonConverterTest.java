@@ -0,0 +1,55 @@
+package com.monkcommerce.coupons.utils;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonConverterTest {
+    private final JsonConverter converter = new JsonConverter();
+
+    @Test
+    void testRoundTrip() {
+        Map<String, Object> details = Map.of("buy_products", List.of(Map.of("product_id", 1, "quantity", 2)),
+                "repetition_limit", 3);
+        String column = converter.convertToDatabaseColumn(details);
+        assertEquals(details, converter.convertToEntityAttribute(column));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    @Test
+    void testParsedDetailsAreCachedAndUnmodifiable() {
+        String column = "{\"threshold\":100,\"items\":[{\"product_id\":7}]}";
+        Map<String, Object> first = converter.convertToEntityAttribute(column);
+        // A different String instance with the same content hits the cache
+        assertSame(first, converter.convertToEntityAttribute(new String(column)));
+        assertThrows(UnsupportedOperationException.class, () -> first.put("threshold", 1));
+        List<?> items = (List<?>) first.get("items");
+        assertThrows(UnsupportedOperationException.class, () -> items.add(null));
+        assertThrows(UnsupportedOperationException.class, () -> ((Map<?, ?>) items.get(0)).clear());
+    }
+
+    @Test
+    void testInvalidJson() {
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute("{not json"));
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        for (int i = 0; i <= JsonConverter.MAX_CACHED; i++) {
+            converter.convertToEntityAttribute("{\"n\":" + i + "}");
+        }
+        assertTrue(JsonConverter.cachedEntries() <= JsonConverter.MAX_CACHED);
+    }
+
+    @Test
+    void testHotEntriesSurviveEviction() {
+        String hot = "{\"hot\":true}";
+        Map<String, Object> first = converter.convertToEntityAttribute(hot);
+        for (int i = 0; i <= 2 * JsonConverter.MAX_CACHED; i++) {
+            converter.convertToEntityAttribute("{\"m\":" + i + "}");
+            converter.convertToEntityAttribute(hot);
+        }
+        assertSame(first, converter.convertToEntityAttribute(hot));
+    }
+}
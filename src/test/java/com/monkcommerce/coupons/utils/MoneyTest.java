@@ -0,0 +1,75 @@
+package com.monkcommerce.coupons.utils;
+
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testConversionRoundTripsCents() {
+        assertEquals(1999, Money.toMinor(19.99));
+        assertEquals(30, Money.toMinor(0.1 + 0.2));
+        assertEquals(1, Money.toMinor(0.005));
+        assertEquals(-1999, Money.toMinor(-19.99));
+        assertEquals(19.99, Money.toMajor(1999));
+        assertEquals(0.3, Money.toMajor(Money.toMinor(0.1) + Money.toMinor(0.2)));
+        assertEquals(1250, Money.basisPoints(12.5));
+    }
+
+    @Test
+    void testPercentOfUsesHalfEven() {
+        assertEquals(2, Money.percentOf(10, 2_500));
+        assertEquals(4, Money.percentOf(14, 2_500));
+        assertEquals(3, Money.percentOf(10, 2_500, RoundingMode.HALF_UP));
+        assertEquals(-2, Money.percentOf(-10, 2_500));
+        assertEquals(4_400, Money.percentOf(44_000, 1_000));
+
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long minor = random.nextInt(2_000_001) - 1_000_000;
+            long bps = random.nextInt(10_001);
+            assertEquals(Money.divide(minor * bps, Money.BASIS_POINTS_PER_UNIT, Money.DISCOUNT_ROUNDING), Money.percentOf(minor, bps));
+        }
+    }
+
+    @Test
+    void testDivideMatchesBigDecimal() {
+        Random random = new Random(42);
+        List<RoundingMode> modes = new ArrayList<>(List.of(RoundingMode.values()));
+        modes.remove(RoundingMode.UNNECESSARY);
+        for (int i = 0; i < 10_000; i++) {
+            long numerator = random.nextInt(2_000_001) - 1_000_000;
+            long denominator = random.nextInt(199) - 99;
+            if (denominator == 0) {
+                continue;
+            }
+            for (RoundingMode mode : modes) {
+                long expected = BigDecimal.valueOf(numerator).divide(BigDecimal.valueOf(denominator), 0, mode).longValueExact();
+                assertEquals(expected, Money.divide(numerator, denominator, mode), numerator + "/" + denominator + " " + mode);
+            }
+        }
+        assertEquals(5, Money.divide(10, 2, RoundingMode.UNNECESSARY));
+        assertThrows(ArithmeticException.class, () -> Money.divide(10, 3, RoundingMode.UNNECESSARY));
+    }
+
+    @Test
+    void testOverflowFailsInsteadOfWrapping() {
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2, 3));
+        assertThrows(ArithmeticException.class, () -> Money.percentOf(Long.MAX_VALUE / 100, 10_000));
+    }
+
+    @Test
+    void testToMinorRejectsAmountsThatDoNotFit() {
+        assertThrows(ArithmeticException.class, () -> Money.toMinor(Double.NaN));
+        assertThrows(ArithmeticException.class, () -> Money.toMinor(Double.POSITIVE_INFINITY));
+        assertThrows(ArithmeticException.class, () -> Money.toMinor(Double.NEGATIVE_INFINITY));
+        assertThrows(ArithmeticException.class, () -> Money.toMinor(1e17));
+        assertThrows(ArithmeticException.class, () -> Money.toMinor(-1e17));
+        // Largest magnitudes that still fit: 2^63 - 2^10 cents, the double just below 2^63, and -2^63 cents
+        assertEquals(Long.MAX_VALUE - 1023, Money.toMinor(Math.nextDown(0x1p63) / 100));
+        assertEquals(Long.MIN_VALUE, Money.toMinor(-0x1p63 / 100));
+    }
+}
@@ -0,0 +1,29 @@
+package com.monkcommerce.coupons.utils;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveSortTest {
+
+    @Test
+    void testSortIndexesIsStableAndMatchesBoxedSort() {
+        Random random = new Random(3);
+        for (int length : new int[]{0, 1, 2, 15, 16, 17, 100, 1_000}) {
+            long[] keys = new long[length];
+            for (int i = 0; i < length; i++) {
+                keys[i] = random.nextInt(20) - 10;
+            }
+            int[] indexes = new int[length];
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < length; i++) {
+                indexes[i] = i;
+                expected.add(i);
+            }
+            expected.sort(Comparator.comparingLong(i -> keys[i]));
+
+            PrimitiveSort.sortIndexes(indexes, length, keys);
+            assertEquals(expected, Arrays.stream(indexes).boxed().toList(), "length " + length);
+        }
+    }
+}